@@ -0,0 +1,29 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+def perf = evaluate(new File(perfScriptsDirectory, 'perf.groovy'))
+
+def modules = perfModules as int
+def artifacts = perfArtifacts as int
+
+modules.times { m ->
+    def moduleName = String.format('module-%03d', m)
+    artifacts.times { a ->
+        assert new File(basedir, "${moduleName}/target/${moduleName}-1.1.1-part-${a}.dat.asc").exists()
+    }
+}
+
+perf.report()
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+def perf = evaluate(new File(perfScriptsDirectory, 'perf.groovy'))
+
+// synthetic reactor: perfModules modules, each with perfArtifacts attached artifacts,
+// sizes are taken in turn from perfArtifactSizes - content is random, so each artifact is signed separately
+
+def modules = perfModules as int
+def artifacts = perfArtifacts as int
+def sizes = perfArtifactSizes.split(',').collect { perf.parseSize(it) }
+
+def random = new Random(1)
+def buf = new byte[64 * 1024]
+long totalBytes = 0
+def moduleNames = []
+
+modules.times { m ->
+    def moduleName = String.format('module-%03d', m)
+    def moduleDir = new File(basedir, moduleName)
+    moduleDir.mkdirs()
+    moduleNames << moduleName
+
+    def attached = new StringBuilder()
+    artifacts.times { a ->
+        long size = sizes[(m + a) % sizes.size()]
+        new File(moduleDir, "part-${a}.dat").withOutputStream { out ->
+            for (long written = 0; written < size; written += buf.length) {
+                random.nextBytes(buf)
+                out.write(buf, 0, (int) Math.min(buf.length, size - written))
+            }
+        }
+        totalBytes += size
+        attached << """
+                                <artifact>
+                                    <file>part-${a}.dat</file>
+                                    <type>dat</type>
+                                    <classifier>part-${a}</classifier>
+                                </artifact>"""
+    }
+
+    new File(moduleDir, 'pom.xml').text = perf.childPom(moduleName, """
+            <plugin>
+                <groupId>org.codehaus.mojo</groupId>
+                <artifactId>build-helper-maven-plugin</artifactId>
+                <executions>
+                    <execution>
+                        <id>attach-artifacts</id>
+                        <phase>package</phase>
+                        <goals>
+                            <goal>attach-artifact</goal>
+                        </goals>
+                        <configuration>
+                            <artifacts>${attached}
+                            </artifacts>
+                        </configuration>
+                    </execution>
+                </executions>
+            </plugin>""")
+}
+
+// last module in reactor dumps status of Maven process - after all other modules are signed
+def reportDir = new File(basedir, 'perf-report')
+reportDir.mkdirs()
+moduleNames << reportDir.name
+new File(reportDir, 'pom.xml').text = perf.childPom(reportDir.name, perf.processStatusPlugin('${project.basedir}/../target'))
+
+def pom = new File(basedir, 'pom-test.xml')
+pom.text = pom.text.replace('<!-- @modules@ -->', moduleNames.collect { "<module>${it}</module>" }.join('\n        '))
+
+perf.start(totalBytes)
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// shared part of performance tests - evaluated by prebuild and postbuild scripts
+//
+// prebuild calls start(bytes) after test data is generated,
+// postbuild calls report() which writes results and compares them with baseline
+
+class Perf {
+
+    static final String INPUT_FILE = 'target/perf-input.properties'
+    static final String STATUS_FILE = 'target/perf-process-status.txt'
+
+    File basedir
+    String suite
+    File resultsDirectory
+    File baselineDirectory
+    double tolerance
+    boolean updateBaseline
+
+    static long parseSize(String size) {
+        def matcher = size.trim().toLowerCase() =~ /^(\d+)([kmg]?)$/
+        assert matcher.matches(): "Invalid size: ${size}"
+        long value = matcher.group(1) as long
+        switch (matcher.group(2)) {
+            case 'k': return value * 1024
+            case 'm': return value * 1024 * 1024
+            case 'g': return value * 1024 * 1024 * 1024
+            default: return value
+        }
+    }
+
+    static String childPom(String artifactId, String plugins) {
+        """<?xml version='1.0' encoding='UTF-8'?>
+<project xmlns="http://maven.apache.org/POM/4.0.0" xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+         xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 https://maven.apache.org/xsd/maven-4.0.0.xsd">
+    <modelVersion>4.0.0</modelVersion>
+
+    <parent>
+        <groupId>test-group</groupId>
+        <artifactId>large-reactor</artifactId>
+        <version>\${revision}</version>
+        <relativePath>../pom-test.xml</relativePath>
+    </parent>
+
+    <artifactId>${artifactId}</artifactId>
+    <packaging>pom</packaging>
+
+    <build>
+        <plugins>${plugins}
+        </plugins>
+    </build>
+</project>
+"""
+    }
+
+    /**
+     * Plugin which copies status of Maven process, peak RSS is in VmHWM.
+     */
+    static String processStatusPlugin(String directory) {
+        """
+            <plugin>
+                <groupId>org.apache.maven.plugins</groupId>
+                <artifactId>maven-antrun-plugin</artifactId>
+                <executions>
+                    <execution>
+                        <id>process-status</id>
+                        <phase>install</phase>
+                        <goals>
+                            <goal>run</goal>
+                        </goals>
+                        <configuration>
+                            <target>
+                                <!-- parent of shell is Maven process -->
+                                <exec executable="sh" osfamily="unix" failonerror="false"
+                                      output="${directory}/perf-process-status.txt">
+                                    <arg value="-c"/>
+                                    <arg value="cat /proc/\$PPID/status"/>
+                                </exec>
+                            </target>
+                        </configuration>
+                    </execution>
+                </executions>
+            </plugin>"""
+    }
+
+    void start(long bytes) {
+        def input = new Properties()
+        input.setProperty('bytes', String.valueOf(bytes))
+        input.setProperty('startTime', String.valueOf(System.currentTimeMillis()))
+        def file = new File(basedir, INPUT_FILE)
+        file.parentFile.mkdirs()
+        file.withOutputStream { input.store(it, suite) }
+    }
+
+    void report() {
+        long endTime = System.currentTimeMillis()
+
+        def input = new Properties()
+        new File(basedir, INPUT_FILE).withInputStream { input.load(it) }
+
+        long bytes = input.getProperty('bytes') as long
+        long wallTimeMs = Math.max(endTime - (input.getProperty('startTime') as long), 1)
+
+        def results = new Properties()
+        results.setProperty('bytes', String.valueOf(bytes))
+        results.setProperty('wallTimeMs', String.valueOf(wallTimeMs))
+        results.setProperty('bytesPerSecond', String.valueOf((long) (bytes * 1000.0 / wallTimeMs)))
+
+        def status = new File(basedir, STATUS_FILE)
+        def peakRss = status.exists() ? status.readLines().find { it.startsWith('VmHWM:') } : null
+        if (peakRss) {
+            results.setProperty('peakRssKiB', peakRss.replaceAll(/\D/, ''))
+        } else {
+            println "Peak RSS of Maven process is not available"
+        }
+
+        resultsDirectory.mkdirs()
+        new File(resultsDirectory, "${suite}.properties").withOutputStream { results.store(it, suite) }
+        println "Performance results ${suite}: ${new TreeMap(results)}"
+
+        def baselineFile = new File(baselineDirectory, "${suite}.properties")
+        if (updateBaseline) {
+            baselineDirectory.mkdirs()
+            baselineFile.withOutputStream { results.store(it, suite) }
+            println "Baseline updated: ${baselineFile}"
+            return
+        }
+
+        // without comparison performance test is useless, so lack of baseline is an error
+        assert baselineFile.exists(): "Baseline not found: ${baselineFile} - record it with -Dperf.updateBaseline=true"
+
+        def baseline = new Properties()
+        baselineFile.withInputStream { baseline.load(it) }
+
+        def baselineBytes = baseline.getProperty('bytes')
+        assert baselineBytes == results.getProperty('bytes'): "Baseline ${baselineFile} was recorded for " +
+                "different data size: ${baselineBytes} - record it with -Dperf.updateBaseline=true"
+
+        def regressions = []
+        checkNotAbove(regressions, 'wallTimeMs', results, baseline)
+        checkNotBelow(regressions, 'bytesPerSecond', results, baseline)
+        checkNotAbove(regressions, 'peakRssKiB', results, baseline)
+
+        assert regressions.isEmpty(): "Performance regression in ${suite} (tolerance: ${tolerance}): ${regressions}"
+    }
+
+    private void checkNotAbove(List regressions, String name, Properties results, Properties baseline) {
+        if (results.getProperty(name) && baseline.getProperty(name)) {
+            long value = results.getProperty(name) as long
+            long limit = (long) ((baseline.getProperty(name) as long) * (1 + tolerance))
+            if (value > limit) {
+                regressions << "${name}: ${value} > ${limit}"
+            }
+        }
+    }
+
+    private void checkNotBelow(List regressions, String name, Properties results, Properties baseline) {
+        if (results.getProperty(name) && baseline.getProperty(name)) {
+            long value = results.getProperty(name) as long
+            long limit = (long) ((baseline.getProperty(name) as long) * (1 - tolerance))
+            if (value < limit) {
+                regressions << "${name}: ${value} < ${limit}"
+            }
+        }
+    }
+}
+
+return new Perf(
+        basedir: basedir,
+        suite: basedir.name,
+        resultsDirectory: new File(perfResultsDirectory),
+        baselineDirectory: new File(perfBaselineDirectory),
+        tolerance: perfTolerance as double,
+        updateBaseline: Boolean.parseBoolean(perfUpdateBaseline))
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+def perf = evaluate(new File(perfScriptsDirectory, 'perf.groovy'))
+
+// one block of random data repeated - content doesn't matter, only size
+long size = perf.parseSize(perfBigArtifactSize)
+def buf = new byte[1024 * 1024]
+new Random(1).nextBytes(buf)
+
+new File(basedir, "test.dat").withOutputStream { out ->
+    for (long written = 0; written < size; written += buf.length) {
+        out.write(buf, 0, (int) Math.min(buf.length, size - written))
+    }
+}
+
+perf.start(size)
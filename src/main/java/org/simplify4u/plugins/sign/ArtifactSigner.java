@@ -15,25 +15,47 @@
  */
 package org.simplify4u.plugins.sign;
 
-
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 import javax.inject.Inject;
 
+import lombok.extern.slf4j.Slf4j;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.project.MavenProject;
+import org.bouncycastle.util.encoders.Hex;
 import org.simplify4u.plugins.sign.openpgp.PGPKeyInfo;
 import org.simplify4u.plugins.sign.openpgp.PGPSigner;
+import org.simplify4u.plugins.sign.openpgp.SignatureFormat;
+import org.simplify4u.plugins.sign.openpgp.SignerBackend;
+import org.simplify4u.plugins.sign.utils.AtomicFileWriter;
+import org.simplify4u.plugins.sign.utils.ChecksumManifest;
+import org.simplify4u.plugins.sign.utils.ChunkManifest;
 
 /**
  * Common implementation for signing artifacts.
  *
  * @author Slawomir Jaranowski
  */
+@Slf4j
 public abstract class ArtifactSigner {
 
+    private static final String CHUNK_MANIFEST_EXTENSION = ".chunks";
+    private static final String CHECKSUM_MANIFEST_EXTENSION = "checksums";
+
     /**
      * current Maven project
      */
@@ -46,6 +68,13 @@ public abstract class ArtifactSigner {
     @Inject
     protected PGPSigner pgpSigner;
 
+    private List<SignatureFormat> signatureFormats = Collections.singletonList(SignatureFormat.ARMORED);
+
+    /**
+     * Signatures copied on {@link #flush()} - target and source.
+     */
+    private final Map<Path, Path> pendingCopies = new LinkedHashMap<>();
+
     /**
      * Convert artifact from Maven to aether space.
      * @param artifact a input artifact
@@ -63,34 +92,186 @@ public abstract class ArtifactSigner {
     }
 
     /**
-     * Sign given input stream. In result we will have file with signature.
+     * Sign given input stream. In result we will have file with signature for each configured format.
      *
      * @param artifact    used for built filename
      * @param inputStream data to sign
      *
+     * @return result of signing - in order of signature formats
+     */
+    protected List<SignResult> makeSignature(org.eclipse.aether.artifact.Artifact artifact,
+            InputStream inputStream) {
+
+        List<SignResult> result = new ArrayList<>();
+        Map<SignatureFormat, Path> outputs = new EnumMap<>(SignatureFormat.class);
+        for (SignatureFormat signatureFormat : signatureFormats) {
+            SignResult signResult = signResultFor(artifact, signatureFormat.getExtension());
+            outputs.put(signatureFormat, signResult.getFile().toPath());
+            result.add(signResult);
+        }
+
+        pgpSigner.sign(inputStream, outputs);
+        return result;
+    }
+
+    /**
+     * Signatures which are created for artifact by {@link #signArtifact(Artifact)} - artifact is not read.
+     *
+     * @param artifact an artifact
+     *
+     * @return signatures in order of signature formats or empty if they can't be determined without reading artifact
+     */
+    public Optional<List<SignResult>> expectedSignatures(Artifact artifact) {
+
+        org.eclipse.aether.artifact.Artifact aetherArtifact = mArtifactToAether(artifact);
+        return Optional.of(signatureFormats.stream()
+                .map(signatureFormat -> signResultFor(aetherArtifact, signatureFormat.getExtension()))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Fingerprint of signing key.
+     *
+     * @return the fingerprint as hex string
+     */
+    public String getKeyFingerprint() {
+        return Hex.toHexString(pgpSigner.getPublicKey().getFingerprint()).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Copy existing signature for artifact with identical content - file is copied on {@link #flush()}.
+     *
+     * @param signResult      signature of identical content
+     * @param artifact        artifact for which signature will be copied
+     * @param signatureFormat format of signature
+     *
      * @return result of signing
      */
-    protected SignResult makeSignature(org.eclipse.aether.artifact.Artifact artifact, InputStream inputStream) {
+    protected SignResult copySignature(SignResult signResult, Artifact artifact, SignatureFormat signatureFormat) {
 
-        String artifactId = artifact.getArtifactId();
-        String classifier = artifact.getClassifier();
-        String version = artifact.getVersion();
-        String extension = artifact.getExtension();
+        SignResult copyResult = signResultFor(mArtifactToAether(artifact), signatureFormat.getExtension());
+        LOGGER.info("Copy signature: {} for artifact: {}", signResult.getFile(), artifact);
 
-        String targetExt = extension + ".asc";
-        String targetName = artifactId + '-' + version;
+        // signature can be still pending in batch - copy is done after all signatures are written
+        pendingCopies.put(copyResult.getFile().toPath(), signResult.getFile().toPath());
+        return copyResult;
+    }
 
-        if (classifier != null && !classifier.isEmpty()) {
-            targetName += "-" + classifier;
+    /**
+     * Create chunk manifest for artifact and sign it. In result we have manifest and its signature.
+     *
+     * @param artifact  artifact for manifest
+     * @param chunkSize size of chunk in bytes
+     * @param threads   number of threads used for hashing
+     *
+     * @return manifest and its signature
+     */
+    public List<SignResult> signChunkManifest(Artifact artifact, long chunkSize, int threads) {
+
+        SignResult manifest = signResultFor(mArtifactToAether(artifact), CHUNK_MANIFEST_EXTENSION);
+        LOGGER.info("Chunk manifest: {} for artifact: {}", manifest.getFile(), artifact);
+
+        byte[] content;
+        try {
+            ChunkManifest chunkManifest = ChunkManifest.calculate(artifact.getFile().toPath(), chunkSize, threads);
+            content = manifestContent(chunkManifest::write);
+        } catch (UncheckedIOException e) {
+            throw new SignMojoException(e.getCause());
+        } catch (IllegalStateException e) {
+            throw new SignMojoException(e);
+        }
+
+        org.eclipse.aether.artifact.Artifact manifestArtifact = new org.eclipse.aether.artifact.DefaultArtifact(
+                artifact.getGroupId(), artifact.getArtifactId(), manifest.getClassifier(), manifest.getExtension(),
+                artifact.getVersion(), null, manifest.getFile());
+
+        return writeAndSignManifest(manifest, manifestArtifact, content);
+    }
+
+    /**
+     * Create one manifest with size and hash of all artifacts and sign it.
+     * In result we have manifest and its signature - attached to project instead of signature of each artifact.
+     *
+     * @param artifacts artifacts covered by manifest
+     * @param threads   number of threads used for hashing
+     *
+     * @return manifest and its signature
+     */
+    public List<SignResult> signChecksumManifest(List<Artifact> artifacts, int threads) {
+
+        Map<String, Path> files = new LinkedHashMap<>();
+        for (Artifact artifact : artifacts) {
+            files.put(fileName(mArtifactToAether(artifact), ""), artifact.getFile().toPath());
+        }
+
+        org.eclipse.aether.artifact.Artifact manifestArtifact = new org.eclipse.aether.artifact.DefaultArtifact(
+                project.getGroupId(), project.getArtifactId(), null, CHECKSUM_MANIFEST_EXTENSION,
+                project.getVersion());
+
+        SignResult manifest = signResultFor(manifestArtifact, "");
+        LOGGER.info("Checksum manifest: {} for {} artifacts", manifest.getFile(), files.size());
+
+        byte[] content;
+        try {
+            ChecksumManifest checksumManifest = ChecksumManifest.calculate(files, threads);
+            content = manifestContent(checksumManifest::write);
+        } catch (UncheckedIOException e) {
+            throw new SignMojoException(e.getCause());
+        } catch (IllegalStateException e) {
+            throw new SignMojoException(e);
+        }
+
+        return writeAndSignManifest(manifest, manifestArtifact, content);
+    }
+
+    private static byte[] manifestContent(AtomicFileWriter.ContentWriter contentWriter) {
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            contentWriter.write(outputStream);
+        } catch (IOException e) {
+            throw new SignMojoException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Manifest is signed from memory - with batch durability written file is in place only after sync.
+     */
+    private List<SignResult> writeAndSignManifest(SignResult manifest,
+            org.eclipse.aether.artifact.Artifact manifestArtifact, byte[] content) {
+
+        try {
+            pgpSigner.getFileWriter().write(manifest.getFile().toPath(), content);
+        } catch (IOException e) {
+            throw new SignMojoException(e);
         }
 
-        targetName += "." + targetExt;
+        List<SignResult> result = new ArrayList<>();
+        result.add(manifest);
+        result.addAll(makeSignature(manifestArtifact, new ByteArrayInputStream(content)));
+        return result;
+    }
+
+    private SignResult signResultFor(org.eclipse.aether.artifact.Artifact artifact, String suffix) {
+
+        Path target = Paths.get(project.getBuild().getDirectory(), fileName(artifact, suffix));
+        return new SignResult(artifact.getClassifier(), artifact.getExtension() + suffix, target.toFile());
+    }
+
+    /**
+     * Name of artifact file like in repository, with additional suffix.
+     */
+    private static String fileName(org.eclipse.aether.artifact.Artifact artifact, String suffix) {
 
-        Path target = Paths.get(project.getBuild().getDirectory(), targetName);
+        String classifier = artifact.getClassifier();
+        String fileName = artifact.getArtifactId() + '-' + artifact.getVersion();
 
-        pgpSigner.sign(inputStream, target);
+        if (classifier != null && !classifier.isEmpty()) {
+            fileName += "-" + classifier;
+        }
 
-        return new SignResult(classifier, targetExt, target.toFile());
+        return fileName + "." + artifact.getExtension() + suffix;
     }
 
     /**
@@ -102,6 +283,93 @@ public abstract class ArtifactSigner {
         pgpSigner.setKeyInfo(pgpKeyInfo);
     }
 
+    /**
+     * Setup signer with backend instead of private key.
+     *
+     * @param signerBackend a signer backend
+     */
+    public void setBackend(SignerBackend signerBackend) {
+        pgpSigner.setBackend(signerBackend);
+    }
+
+    /**
+     * Collect digests and sign them in one batch on {@link #flush()}.
+     *
+     * @param batchMode true if signatures should be created in batch
+     */
+    public void setBatchMode(boolean batchMode) {
+        pgpSigner.setBatchMode(batchMode);
+    }
+
+    /**
+     * Sign all collected digests, write signatures and copy them for artifacts with identical content.
+     */
+    public void flush() {
+
+        pgpSigner.flush();
+
+        try {
+            for (Map.Entry<Path, Path> copy : pendingCopies.entrySet()) {
+                pgpSigner.getFileWriter().copy(copy.getValue(), copy.getKey());
+            }
+        } catch (IOException e) {
+            throw new SignMojoException(e);
+        }
+        pendingCopies.clear();
+    }
+
+    /**
+     * Setup durability policy of written files.
+     *
+     * @param durability a durability policy
+     */
+    public void setDurability(AtomicFileWriter.Durability durability) {
+        pgpSigner.setDurability(durability);
+    }
+
+    /**
+     * Writer of signatures and manifests.
+     *
+     * @return the file writer
+     */
+    public AtomicFileWriter getFileWriter() {
+        return pgpSigner.getFileWriter();
+    }
+
+    /**
+     * Force written signatures and manifests to storage - according to durability policy.
+     */
+    public void sync() {
+        pgpSigner.sync();
+    }
+
+    /**
+     * Setup formats of created signatures.
+     *
+     * @param signatureFormats signature formats
+     */
+    public void setSignatureFormats(List<SignatureFormat> signatureFormats) {
+        this.signatureFormats = signatureFormats;
+    }
+
+    /**
+     * Setup hash algorithm used for signatures.
+     *
+     * @param hashAlgorithm algorithm name or <code>auto</code>
+     */
+    public void setHashAlgorithm(String hashAlgorithm) {
+        pgpSigner.setHashAlgorithm(hashAlgorithm);
+    }
+
+    /**
+     * Enable verification of each signature just after it is created.
+     *
+     * @param selfVerify true if signatures should be verified
+     */
+    public void setSelfVerify(boolean selfVerify) {
+        pgpSigner.setSelfVerify(selfVerify);
+    }
+
     /**
      * Sign given artifact. In result we can have multiple signatures, transformers can produce multiple output for one
      * artifact.
@@ -113,4 +381,28 @@ public abstract class ArtifactSigner {
      * @return sign result
      */
     public abstract List<SignResult> signArtifact(Artifact artifact);
+
+    /**
+     * Sign artifacts which have identical content. Content is signed once, and signature is copied
+     * for rest of artifacts.
+     *
+     * @param artifacts artifacts with identical content
+     *
+     * @return sign result
+     */
+    public List<SignResult> signIdenticalArtifacts(List<Artifact> artifacts) {
+
+        List<SignResult> signResults = signArtifact(artifacts.get(0));
+        if (signResults.size() != signatureFormats.size()) {
+            throw new SignMojoException("Expected one signature in each format for artifact: " + artifacts.get(0));
+        }
+
+        List<SignResult> result = new ArrayList<>(signResults);
+        for (Artifact artifact : artifacts.subList(1, artifacts.size())) {
+            for (int i = 0; i < signatureFormats.size(); i++) {
+                result.add(copySignature(signResults.get(i), artifact, signatureFormats.get(i)));
+            }
+        }
+        return result;
+    }
 }
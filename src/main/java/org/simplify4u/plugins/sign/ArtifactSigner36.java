@@ -19,7 +19,6 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
-import java.util.Collections;
 import java.util.List;
 import javax.inject.Named;
 
@@ -42,7 +41,7 @@ public class ArtifactSigner36 extends ArtifactSigner {
         try (InputStream artifactInputStream = new BufferedInputStream(
                 Files.newInputStream(artifact.getFile().toPath()))) {
 
-            return Collections.singletonList(makeSignature(mArtifactToAether(artifact), artifactInputStream));
+            return makeSignature(mArtifactToAether(artifact), artifactInputStream);
         } catch (IOException e) {
             throw new SignMojoException(e);
         }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.maven.rtinfo.RuntimeInformation;
+
+/**
+ * Choose {@link ArtifactSigner} implementation for running Maven version.
+ *
+ * @author Slawomir Jaranowski
+ */
+@Slf4j
+@Named
+public class ArtifactSignerFactory {
+
+    /**
+     * Maven versions which can transform artifacts, like consumer pom, during install and deploy.
+     */
+    static final String MAVEN_TRANSFORMER_VERSIONS = "[4.0.0-alpha-1,)";
+
+    @Inject
+    private RuntimeInformation runtimeInformation;
+
+    @Inject
+    private Provider<ArtifactSigner36> artifactSigner36;
+
+    /**
+     * Provide artifact signer for current Maven.
+     * <p>
+     * Maven 4 runs Maven Resolver 2, where transformed content is not available for plugins,
+     * it is only passed to deployed artifacts - so it can be signed by the deploy-time artifact generator.
+     *
+     * @return artifact signer
+     */
+    public ArtifactSigner getArtifactSigner() {
+
+        if (runtimeInformation.isMavenVersion(MAVEN_TRANSFORMER_VERSIONS)) {
+            LOGGER.warn("Maven {} can transform artifacts, like consumer pom, during deploy - "
+                            + "signatures are made for files in project, register plugin as core extension "
+                            + "to sign deployed artifacts",
+                    runtimeInformation.getMavenVersion());
+        } else {
+            LOGGER.debug("Use artifact signer for Maven: {}", runtimeInformation.getMavenVersion());
+        }
+
+        return artifactSigner36.get();
+    }
+}
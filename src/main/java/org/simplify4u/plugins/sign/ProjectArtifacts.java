@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.artifact.ProjectArtifact;
+import org.codehaus.plexus.util.SelectorUtils;
+
+/**
+ * Select project artifacts which should be signed.
+ *
+ * @author Slawomir Jaranowski
+ */
+@Slf4j
+final class ProjectArtifacts {
+
+    private ProjectArtifacts() {
+    }
+
+    /**
+     * Normalize excludes for current file separator.
+     *
+     * @param excludes a list from plugin configuration
+     *
+     * @return normalized excludes
+     */
+    static List<String> normalizeExcludes(List<String> excludes) {
+
+        String from = File.separatorChar == '/' ? "\\\\" : "/";
+
+        return excludes.stream()
+                .map(s -> s.replace(from, File.separator))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Collect project artifacts - pom, primary and attached one, which are not excluded.
+     *
+     * @param project  a current project
+     * @param excludes excludes patterns - relative to project base directory
+     *
+     * @return artifacts to sign
+     */
+    static List<Artifact> collect(MavenProject project, List<String> excludes) {
+
+        Set<Artifact> artifacts = new HashSet<>();
+
+        ProjectArtifact projectArtifact = new ProjectArtifact(project);
+        artifacts.add(projectArtifact);
+
+        Artifact artifact = project.getArtifact();
+        if (artifact.getFile() != null) {
+            artifacts.add(artifact);
+        } else {
+            if (!artifact.equals(projectArtifact)) {
+                LOGGER.info("Primary artifact doesn't have the file to sign, continue with attached artifacts.");
+            }
+        }
+
+        artifacts.addAll(project.getAttachedArtifacts());
+
+        return artifacts.stream()
+                .map(ProjectArtifacts::verifyArtifact)
+                .filter(a -> shouldBeSigned(project, excludes, a))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Check if artifact has correct data.
+     *
+     * @param artifact an artifact to check
+     *
+     * @return the same artifact if is acceptable
+     */
+    private static Artifact verifyArtifact(Artifact artifact) {
+
+        if (artifact == null) {
+            throw new SignMojoException("null artifacts ...");
+        }
+
+        if (artifact.getFile() == null) {
+            throw new SignMojoException("Artifact: " + artifact + " has no file");
+        }
+
+        return artifact;
+    }
+
+    /**
+     * Check if artifact should be signed.
+     */
+    private static boolean shouldBeSigned(MavenProject project, List<String> excludes, Artifact artifact) {
+
+        final Path projectBasePath = project.getBasedir().toPath();
+        final Path artifactPath = artifact.getFile().toPath();
+        final String relativeArtifactPath = projectBasePath.relativize(artifactPath).toString();
+
+        boolean shouldSign = excludes.stream()
+                .noneMatch(exclude -> SelectorUtils.matchPath(exclude, relativeArtifactPath));
+
+        LOGGER.debug("Artifact: {} with relativeArtifactPath: {} shouldSign: {} due to excludes: {}",
+                artifact, relativeArtifactPath, shouldSign, excludes);
+
+        return shouldSign;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.codehaus.plexus.util.SelectorUtils;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.spi.artifact.generator.ArtifactGenerator;
+import org.simplify4u.plugins.sign.openpgp.PGPSigner;
+import org.simplify4u.plugins.sign.openpgp.SignatureFormat;
+
+/**
+ * Generate signatures for artifacts from deploy request.
+ * <p>
+ * Signatures are stored in temporary directory, which is removed after deploy.
+ *
+ * @author Slawomir Jaranowski
+ */
+@Slf4j
+class SignArtifactGenerator implements ArtifactGenerator {
+
+    private final PGPSigner pgpSigner;
+    private final List<SignatureFormat> signatureFormats;
+    private final List<String> excludes;
+    private final Collection<Artifact> requestArtifacts;
+
+    private Path tempDirectory;
+
+    SignArtifactGenerator(PGPSigner pgpSigner, List<SignatureFormat> signatureFormats, List<String> excludes,
+            Collection<Artifact> requestArtifacts) {
+        this.pgpSigner = pgpSigner;
+        this.signatureFormats = signatureFormats;
+        this.excludes = excludes;
+        this.requestArtifacts = requestArtifacts;
+    }
+
+    @Override
+    public String generatorId() {
+        return SignArtifactGeneratorFactory.NAME;
+    }
+
+    @Override
+    public Collection<? extends Artifact> generate(Collection<? extends Artifact> generatedArtifacts) {
+
+        List<Artifact> artifacts = Stream.concat(requestArtifacts.stream(), generatedArtifacts.stream())
+                .collect(Collectors.toList());
+
+        // signatures already provided, eg. by sign goal
+        Set<String> signedArtifacts = artifacts.stream()
+                .filter(SignArtifactGenerator::isSignature)
+                .map(SignArtifactGenerator::signedArtifactKey)
+                .collect(Collectors.toSet());
+
+        List<Artifact> result = new ArrayList<>();
+        for (Artifact artifact : artifacts) {
+            if (isSignature(artifact) || signedArtifacts.contains(artifactKey(artifact)) || isExcluded(artifact)) {
+                LOGGER.debug("Skip signing artifact: {}", artifact);
+                continue;
+            }
+            result.addAll(sign(artifact));
+        }
+        return result;
+    }
+
+    private List<Artifact> sign(Artifact artifact) {
+        LOGGER.info("Signing artifact: {}", artifact);
+
+        try (InputStream artifactInputStream = new BufferedInputStream(
+                Files.newInputStream(artifact.getFile().toPath()))) {
+
+            List<Artifact> result = new ArrayList<>();
+            Map<SignatureFormat, Path> outputs = new EnumMap<>(SignatureFormat.class);
+            for (SignatureFormat signatureFormat : signatureFormats) {
+                Path target = getTempDirectory().resolve(tempFileName(artifact) + signatureFormat.getExtension());
+                outputs.put(signatureFormat, target);
+                result.add(new DefaultArtifact(artifact.getGroupId(), artifact.getArtifactId(),
+                        artifact.getClassifier(), artifact.getExtension() + signatureFormat.getExtension(),
+                        artifact.getVersion(), null, target.toFile()));
+            }
+
+            pgpSigner.sign(artifactInputStream, outputs);
+            return result;
+        } catch (IOException e) {
+            throw new SignMojoException(e);
+        }
+    }
+
+    /**
+     * Name from coordinates - request can contain many artifacts with the same file name, like <code>pom.xml</code>.
+     */
+    private static String tempFileName(Artifact artifact) {
+
+        String fileName = artifact.getGroupId() + '-' + artifact.getArtifactId() + '-' + artifact.getVersion();
+
+        String classifier = artifact.getClassifier();
+        if (classifier != null && !classifier.isEmpty()) {
+            fileName += "-" + classifier;
+        }
+
+        return fileName + "." + artifact.getExtension();
+    }
+
+    private boolean isExcluded(Artifact artifact) {
+        String fileName = artifact.getFile().getName();
+        return excludes.stream().anyMatch(exclude -> SelectorUtils.matchPath(exclude, fileName));
+    }
+
+    private Path getTempDirectory() throws IOException {
+        if (tempDirectory == null) {
+            tempDirectory = Files.createTempDirectory("sign-maven-plugin");
+        }
+        return tempDirectory;
+    }
+
+    @Override
+    public void close() {
+        if (tempDirectory == null) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.list(tempDirectory)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(tempDirectory);
+        } catch (IOException e) {
+            LOGGER.warn("Can't remove temporary directory: {} - {}", tempDirectory, e.getMessage());
+        }
+        tempDirectory = null;
+    }
+
+    private static boolean isSignature(Artifact artifact) {
+        return SignatureFormat.forFileName(artifact.getExtension()).isPresent();
+    }
+
+    private static String signedArtifactKey(Artifact signature) {
+        String extension = signature.getExtension();
+        int suffixLength = SignatureFormat.forFileName(extension)
+                .map(format -> format.getExtension().length())
+                .orElse(0);
+        return key(signature, extension.substring(0, extension.length() - suffixLength));
+    }
+
+    private static String artifactKey(Artifact artifact) {
+        return key(artifact, artifact.getExtension());
+    }
+
+    private static String key(Artifact artifact, String extension) {
+        return artifact.getGroupId() + ':' + artifact.getArtifactId() + ':' + artifact.getVersion() + ':'
+                + artifact.getClassifier() + ':' + extension;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.deployment.DeployRequest;
+import org.eclipse.aether.installation.InstallRequest;
+import org.eclipse.aether.spi.artifact.generator.ArtifactGenerator;
+import org.eclipse.aether.spi.artifact.generator.ArtifactGeneratorFactory;
+import org.simplify4u.plugins.sign.openpgp.PGPKeyInfo;
+import org.simplify4u.plugins.sign.openpgp.PGPSigner;
+import org.simplify4u.plugins.sign.openpgp.SignatureFormat;
+
+/**
+ * Maven Resolver artifact generator factory - signatures are created only for deployed artifacts.
+ * <p>
+ * Requires Maven Resolver 2 and plugin registered as Maven core extension,
+ * on older Maven versions this class is not loaded.
+ * <p>
+ * Configuration is read from session config properties - the same names as properties of <code>sign</code> goal.
+ *
+ * @author Slawomir Jaranowski
+ * @since 1.1.1
+ */
+@Slf4j
+@Singleton
+@Named(SignArtifactGeneratorFactory.NAME)
+public class SignArtifactGeneratorFactory implements ArtifactGeneratorFactory {
+
+    /**
+     * Generator id.
+     */
+    public static final String NAME = "sign";
+
+    static final String CONFIG_SKIP = "sign.skip";
+    static final String CONFIG_SKIP_NO_KEY = "sign.skipNoKey";
+    static final String CONFIG_SERVER_ID = "sign.serverId";
+    static final String CONFIG_KEY_ID = "sign.keyId";
+    static final String CONFIG_KEY_PASS = "sign.keyPass";
+    static final String CONFIG_KEY_FILE = "sign.keyFile";
+    static final String CONFIG_EXCLUDES = "sign.excludes";
+    static final String CONFIG_SELF_VERIFY = "sign.selfVerify";
+    static final String CONFIG_SIGNATURE_FORMAT = "sign.signatureFormat";
+    static final String CONFIG_HASH_ALGORITHM = "sign.hashAlgorithm";
+
+    private static final String DEFAULT_KEY_FILE = "~/.m2/sign-key.asc";
+
+    @Inject
+    private Provider<KeyInfoFactory> keyInfoFactoryProvider;
+
+    @Inject
+    private Provider<PGPSigner> pgpSignerProvider;
+
+    /**
+     * Nothing is generated for install - signatures are not needed in local repository.
+     */
+    @Override
+    public ArtifactGenerator newInstance(RepositorySystemSession session, InstallRequest request) {
+        return null;
+    }
+
+    @Override
+    public ArtifactGenerator newInstance(RepositorySystemSession session, DeployRequest request) {
+
+        Map<String, Object> config = session.getConfigProperties();
+
+        if (Boolean.parseBoolean(getConfig(config, CONFIG_SKIP).orElse("false"))) {
+            LOGGER.info("Sign - skip execution");
+            return null;
+        }
+
+        List<SignatureFormat> signatureFormats = SignatureFormat.parse(
+                getConfig(config, CONFIG_SIGNATURE_FORMAT).orElse(SignatureFormat.ARMORED.name()));
+
+        PGPKeyInfo keyInfo = keyInfoFactoryProvider.get().buildKeyInfo(
+                KeyInfoFactory.KeyInfoRequest.builder()
+                        .serverId(getConfig(config, CONFIG_SERVER_ID).orElse(null))
+                        .id(getConfig(config, CONFIG_KEY_ID).orElse(null))
+                        .pass(getConfig(config, CONFIG_KEY_PASS).orElse(null))
+                        .file(new File(getConfig(config, CONFIG_KEY_FILE).orElse(DEFAULT_KEY_FILE)))
+                        .build());
+
+        if (!keyInfo.isKeyAvailable()) {
+            if (Boolean.parseBoolean(getConfig(config, CONFIG_SKIP_NO_KEY).orElse("true"))) {
+                LOGGER.info("Sign - key not found - skip execution");
+                return null;
+            }
+            throw new SignMojoException("Required key for signing not found");
+        }
+
+        PGPSigner signer = pgpSignerProvider.get();
+        signer.setKeyInfo(keyInfo);
+        signer.setHashAlgorithm(getConfig(config, CONFIG_HASH_ALGORITHM).orElse(PGPSigner.DEFAULT_HASH_ALGORITHM));
+        signer.setSelfVerify(Boolean.parseBoolean(getConfig(config, CONFIG_SELF_VERIFY).orElse("false")));
+
+        List<String> excludes = Arrays.stream(getConfig(config, CONFIG_EXCLUDES)
+                        .orElse(SignMojo.DEFAULT_EXCLUDES).split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toList());
+
+        return new SignArtifactGenerator(signer, signatureFormats, excludes, request.getArtifacts());
+    }
+
+    @Override
+    public float getPriority() {
+        return 100;
+    }
+
+    private static Optional<String> getConfig(Map<String, Object> config, String name) {
+        return Optional.ofNullable(config.get(name))
+                .map(String::valueOf)
+                .map(String::trim)
+                .filter(s -> !s.isEmpty());
+    }
+}
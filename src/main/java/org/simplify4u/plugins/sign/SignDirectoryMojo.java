@@ -0,0 +1,403 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.inject.Inject;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.bouncycastle.util.encoders.Hex;
+import org.codehaus.plexus.util.SelectorUtils;
+import org.simplify4u.plugins.sign.openpgp.PGPKeyInfo;
+import org.simplify4u.plugins.sign.openpgp.PGPSigner;
+import org.simplify4u.plugins.sign.openpgp.SignatureFormat;
+import org.simplify4u.plugins.sign.openpgp.PGPSignerException;
+import org.simplify4u.plugins.sign.openpgp.PGPVerifier;
+import org.simplify4u.plugins.sign.utils.AtomicFileWriter;
+import org.simplify4u.plugins.sign.utils.ParallelTasks;
+
+/**
+ * Creates Open PGP / GPG signatures for all files in directory, like Maven repository on disk.
+ * <p>
+ * Signature is written next to each file. Files which already have signature valid for current key are skipped.
+ * Progress is stored in journal, so interrupted execution can be restarted without redoing completed work.
+ *
+ * @author Slawomir Jaranowski
+ * @since 1.1.1
+ */
+@Slf4j
+@Mojo(name = "sign-directory", requiresProject = false, threadSafe = true)
+public class SignDirectoryMojo extends AbstractMojo {
+
+    /**
+     * Default list of excluded files from signing - in addition to excludes of <code>sign</code> goal
+     * also Maven repository metadata.
+     */
+    static final String DEFAULT_EXCLUDES = SignMojo.DEFAULT_EXCLUDES
+            + ",**/maven-metadata*.xml,**/_remote.repositories,**/*.lastUpdated";
+
+    private static final String JOURNAL_FILE = ".sign-journal";
+
+    /**
+     * Number of files signed between syncs of signatures - files are recorded in journal only after sync.
+     */
+    private static final int SYNC_FILES = 1000;
+
+    private enum Status {
+        SIGNED, VALID, COMPLETED, FAILED
+    }
+
+    /**
+     * Status of one file, failure doesn't break signing of other files.
+     */
+    @Value
+    private static class FileStatus {
+        Status status;
+        String failure;
+        String path;
+        BasicFileAttributes attributes;
+    }
+
+    @Inject
+    private KeyInfoFactory keyInfoFactory;
+
+    @Inject
+    private PGPSigner pgpSigner;
+
+    @Inject
+    private PGPVerifier pgpVerifier;
+
+    /**
+     * A directory with files to sign.
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.directory", required = true)
+    private File directory;
+
+    /**
+     * A journal of signed files. By default <code>.sign-journal</code> in signed directory.
+     * <p>
+     * Journal is removed when all files are signed successfully.
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.journalFile")
+    private File journalFile;
+
+    /**
+     * Number of threads used for signing. By default number of available processors.
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * The same as for <code>sign</code> goal.
+     *
+     * @since 1.1.1
+     */
+    @Parameter(property = "sign.serverId")
+    private String serverId;
+
+    /**
+     * The same as for <code>sign</code> goal.
+     *
+     * @since 1.1.1
+     */
+    @Parameter(property = "sign.keyId")
+    private String keyId;
+
+    /**
+     * The same as for <code>sign</code> goal.
+     *
+     * @since 1.1.1
+     */
+    @Parameter(property = "sign.keyPass")
+    private String keyPass;
+
+    /**
+     * The same as for <code>sign</code> goal.
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.keyFile", defaultValue = "${user.home}/.m2/sign-key.asc")
+    private File keyFile;
+
+    /**
+     * A list of files to exclude from being signed. Can contain Ant-style wildcards and double wildcards.
+     * <p>
+     * Patterns are matched against path relative to signed directory.
+     *
+     * @since 1.1.1
+     */
+    @Parameter(property = "sign.excludes", defaultValue = DEFAULT_EXCLUDES)
+    private List<String> excludes = Collections.emptyList();
+
+    /**
+     * <p>Hash algorithm used for signatures: <code>SHA512</code>, <code>SHA384</code>, <code>SHA256</code>,
+     * <code>SHA224</code>, <code>SHA3-512</code>, <code>SHA3-256</code> or <code>auto</code>.</p>
+     *
+     * <p>In <code>auto</code> mode the fastest one on current machine is selected from <code>SHA512</code>,
+     * <code>SHA384</code> and <code>SHA256</code> also preferred by key.</p>
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.hashAlgorithm", defaultValue = PGPSigner.DEFAULT_HASH_ALGORITHM)
+    private String hashAlgorithm = PGPSigner.DEFAULT_HASH_ALGORITHM;
+
+    /**
+     * Format of created signatures: <code>armored</code>, <code>binary</code> or <code>both</code>.
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.signatureFormat", defaultValue = "armored")
+    private String signatureFormat = "armored";
+
+    /**
+     * <p>Durability of written signatures and manifests:</p>
+     * <ul>
+     *     <li><code>none</code> - files are only written atomically, by move of temporary file into place</li>
+     *     <li><code>batch</code> - signatures are moved into place after each 1000 files,
+     *     after their content is forced to storage, next each directory is forced once</li>
+     * </ul>
+     * <p>
+     * Files are recorded in journal only when their signatures are in place.
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.durability", defaultValue = "none")
+    private String durability = "none";
+
+    /**
+     * Set excludes list.
+     *
+     * @param excludes a list from plugin configuration
+     */
+    public void setExcludes(List<String> excludes) {
+        this.excludes = ProjectArtifacts.normalizeExcludes(excludes);
+    }
+
+    @Override
+    public void execute() {
+
+        List<SignatureFormat> signatureFormats = SignatureFormat.parse(signatureFormat);
+        AtomicFileWriter.Durability durabilityPolicy = SignMojo.parseDurability(durability);
+
+        PGPKeyInfo keyInfo = keyInfoFactory.buildKeyInfo(
+                KeyInfoFactory.KeyInfoRequest.builder()
+                        .serverId(serverId)
+                        .id(keyId)
+                        .pass(keyPass)
+                        .file(keyFile)
+                        .build());
+
+        if (!keyInfo.isKeyAvailable()) {
+            throw new SignMojoException("Required key for signing not found");
+        }
+
+        pgpSigner.setKeyInfo(keyInfo);
+        pgpSigner.setHashAlgorithm(hashAlgorithm);
+        pgpSigner.setDurability(durabilityPolicy);
+
+        Path directoryPath = directory.toPath();
+        Path journalPath = journalFile != null ? journalFile.toPath() : directoryPath.resolve(JOURNAL_FILE);
+
+        try (SignJournal journal = SignJournal.open(journalPath,
+                Hex.toHexString(pgpSigner.getPublicKey().getFingerprint()))) {
+
+            List<Path> files = filesToSign(directoryPath, journalPath);
+            LOGGER.info("Sign {} files in: {}", files.size(), directoryPath);
+
+            List<String> failures = signFiles(directoryPath, files, signatureFormats, journal);
+
+            if (!failures.isEmpty()) {
+                failures.forEach(LOGGER::error);
+                throw new SignMojoException("Signing failed for " + failures.size()
+                        + " file(s), restart to continue: " + String.join(", ", failures));
+            }
+
+            journal.delete();
+        } catch (IOException e) {
+            throw new SignMojoException(e);
+        }
+    }
+
+    private List<Path> filesToSign(Path directoryPath, Path journalPath) throws IOException {
+
+        try (Stream<Path> paths = Files.walk(directoryPath)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> !path.equals(journalPath))
+                    .filter(path -> !SignatureFormat.forFileName(path.getFileName().toString()).isPresent())
+                    .filter(path -> !AtomicFileWriter.isTemporaryFile(path.getFileName().toString()))
+                    .filter(path -> shouldBeSigned(directoryPath.relativize(path).toString()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private boolean shouldBeSigned(String relativePath) {
+        return excludes.stream().noneMatch(exclude -> SelectorUtils.matchPath(exclude, relativePath));
+    }
+
+    private List<String> signFiles(Path directoryPath, List<Path> files, List<SignatureFormat> signatureFormats,
+            SignJournal journal) throws IOException {
+
+        int threadsCount = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        List<FileStatus> results = new ArrayList<>();
+        for (int start = 0; start < files.size(); start += SYNC_FILES) {
+            List<Path> chunk = files.subList(start, Math.min(start + SYNC_FILES, files.size()));
+            results.addAll(signChunk(directoryPath, chunk, signatureFormats, journal, threadsCount));
+        }
+
+        Map<Status, Integer> statistics = new EnumMap<>(Status.class);
+        Arrays.stream(Status.values()).forEach(status -> statistics.put(status, 0));
+
+        List<String> failures = new ArrayList<>();
+        for (FileStatus result : results) {
+            statistics.merge(result.getStatus(), 1, Integer::sum);
+            if (result.getFailure() != null) {
+                failures.add(result.getFailure());
+            }
+        }
+
+        LOGGER.info("Signed: {}, already valid: {}, completed before restart: {}, failed: {}",
+                statistics.get(Status.SIGNED), statistics.get(Status.VALID), statistics.get(Status.COMPLETED),
+                statistics.get(Status.FAILED));
+
+        return failures;
+    }
+
+    /**
+     * Signatures can be still pending after signing, in batch durability,
+     * so files are recorded in journal after signatures of whole chunk are synced.
+     */
+    private List<FileStatus> signChunk(Path directoryPath, List<Path> files, List<SignatureFormat> signatureFormats,
+            SignJournal journal, int threadsCount) throws IOException {
+
+        List<Callable<FileStatus>> tasks = new ArrayList<>();
+        for (Path file : files) {
+            tasks.add(() -> trySignFile(directoryPath, file, signatureFormats, journal));
+        }
+
+        List<FileStatus> results;
+        try {
+            results = ParallelTasks.run(tasks, threadsCount);
+        } catch (IllegalStateException e) {
+            throw new SignMojoException(e);
+        }
+
+        pgpSigner.sync();
+
+        for (FileStatus result : results) {
+            if (result.getStatus() == Status.SIGNED || result.getStatus() == Status.VALID) {
+                journal.completed(result.getPath(), result.getAttributes());
+            }
+        }
+        return results;
+    }
+
+    private FileStatus trySignFile(Path directoryPath, Path file, List<SignatureFormat> signatureFormats,
+            SignJournal journal) {
+        try {
+            return signFile(directoryPath, file, signatureFormats, journal);
+        } catch (IOException | RuntimeException e) {
+            return new FileStatus(Status.FAILED, file + " - " + e.getMessage(), null, null);
+        }
+    }
+
+    private FileStatus signFile(Path directoryPath, Path file, List<SignatureFormat> signatureFormats,
+            SignJournal journal) throws IOException {
+
+        String relativePath = directoryPath.relativize(file).toString();
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+
+        Map<SignatureFormat, Path> signatures = new EnumMap<>(SignatureFormat.class);
+        signatureFormats.forEach(format -> signatures.put(format,
+                file.resolveSibling(file.getFileName() + format.getExtension())));
+
+        // signatures could be removed after journal was written
+        if (journal.isCompleted(relativePath, attributes) && signatures.values().stream().allMatch(Files::exists)) {
+            return new FileStatus(Status.COMPLETED, null, relativePath, attributes);
+        }
+
+        Status status;
+        if (areSignaturesValid(file, signatures.values())) {
+            LOGGER.debug("Valid signature exists for: {}", file);
+            status = Status.VALID;
+        } else {
+            LOGGER.debug("Signing: {}", file);
+            try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(file))) {
+                pgpSigner.sign(inputStream, signatures);
+            }
+            status = Status.SIGNED;
+        }
+
+        return new FileStatus(status, null, relativePath, attributes);
+    }
+
+    private boolean areSignaturesValid(Path file, Collection<Path> signatures) throws IOException {
+        for (Path signature : signatures) {
+            if (!Files.exists(signature) || !isSignatureValid(file, signature)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isSignatureValid(Path file, Path signature) throws IOException {
+
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(file));
+             InputStream signatureStream = Files.newInputStream(signature)) {
+            pgpVerifier.verify(inputStream, signatureStream, pgpSigner.getPublicKey());
+            return true;
+        } catch (PGPSignerException e) {
+            LOGGER.debug("Invalid signature: {} - {}", signature, e.getMessage());
+            return false;
+        }
+    }
+}
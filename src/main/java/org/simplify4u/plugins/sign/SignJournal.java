@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Journal of already signed files - allows to restart interrupted signing without redoing completed work.
+ * <p>
+ * Journal is a text file, first line contains fingerprint of signing key, next lines completed files
+ * in format: <code>size lastModified relativePath</code>.
+ * Journal created for other key is discarded.
+ *
+ * @author Slawomir Jaranowski
+ */
+@Slf4j
+class SignJournal implements Closeable {
+
+    private static final String KEY_PREFIX = "key:";
+
+    private final Path journalFile;
+    private final Map<String, String> completed;
+    private final BufferedWriter writer;
+
+    private SignJournal(Path journalFile, Map<String, String> completed, BufferedWriter writer) {
+        this.journalFile = journalFile;
+        this.completed = completed;
+        this.writer = writer;
+    }
+
+    /**
+     * Open existing journal or create new one.
+     *
+     * @param journalFile    a journal file
+     * @param keyFingerprint fingerprint of signing key
+     *
+     * @return journal
+     *
+     * @throws IOException if some IO problems
+     */
+    static SignJournal open(Path journalFile, String keyFingerprint) throws IOException {
+
+        Map<String, String> completed = new ConcurrentHashMap<>();
+        String keyLine = KEY_PREFIX + keyFingerprint;
+
+        if (Files.exists(journalFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+                if (keyLine.equals(reader.readLine())) {
+                    reader.lines()
+                            .map(line -> line.split(" ", 3))
+                            // last line can be incomplete after interruption
+                            .filter(entry -> entry.length == 3)
+                            .forEach(entry -> completed.put(entry[2], entry[0] + ' ' + entry[1]));
+                } else {
+                    LOGGER.info("Journal {} was created for other key - discard it", journalFile);
+                }
+            }
+        }
+
+        BufferedWriter writer;
+        if (completed.isEmpty()) {
+            writer = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8);
+            writer.write(keyLine);
+            writer.newLine();
+            writer.flush();
+        } else {
+            LOGGER.info("Continue signing from journal {} - {} files already signed", journalFile, completed.size());
+            writer = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            // start from new line - last one can be incomplete
+            writer.newLine();
+        }
+
+        return new SignJournal(journalFile, completed, writer);
+    }
+
+    /**
+     * Check if file was signed, file can not be changed after signing.
+     *
+     * @param path       relative path of file
+     * @param attributes current file attributes
+     *
+     * @return true if file was signed
+     */
+    boolean isCompleted(String path, BasicFileAttributes attributes) {
+        return fileState(attributes).equals(completed.get(path));
+    }
+
+    /**
+     * Mark file as signed.
+     *
+     * @param path       relative path of file
+     * @param attributes file attributes
+     *
+     * @throws IOException if some IO problems
+     */
+    synchronized void completed(String path, BasicFileAttributes attributes) throws IOException {
+        writer.write(fileState(attributes) + ' ' + path);
+        writer.newLine();
+        writer.flush();
+    }
+
+    /**
+     * Journal is not needed when all files was signed.
+     *
+     * @throws IOException if some IO problems
+     */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(journalFile);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private static String fileState(BasicFileAttributes attributes) {
+        return attributes.size() + " " + attributes.lastModifiedTime().toMillis();
+    }
+}
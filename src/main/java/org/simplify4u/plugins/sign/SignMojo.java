@@ -16,11 +16,19 @@
 package org.simplify4u.plugins.sign;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 
@@ -34,9 +42,15 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
-import org.apache.maven.project.artifact.ProjectArtifact;
-import org.codehaus.plexus.util.SelectorUtils;
+import org.bouncycastle.openpgp.PGPPublicKey;
 import org.simplify4u.plugins.sign.openpgp.PGPKeyInfo;
+import org.simplify4u.plugins.sign.openpgp.PGPPublicKeyCache;
+import org.simplify4u.plugins.sign.openpgp.PGPSigner;
+import org.simplify4u.plugins.sign.openpgp.SignatureFormat;
+import org.simplify4u.plugins.sign.openpgp.SignerBackend;
+import org.simplify4u.plugins.sign.openpgp.SignerBackendFactory;
+import org.simplify4u.plugins.sign.utils.AtomicFileWriter;
+import org.simplify4u.plugins.sign.utils.IdenticalFiles;
 
 /**
  * Creates Open PGP / GPG signatures for all of the project's artifacts.
@@ -48,6 +62,13 @@ import org.simplify4u.plugins.sign.openpgp.PGPKeyInfo;
 @Mojo(name = "sign", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
 public class SignMojo extends AbstractMojo {
 
+    /**
+     * Default list of excluded files from signing.
+     */
+    static final String DEFAULT_EXCLUDES = "**/*.md5,**/*.sha1,**/*.sha256,**/*.sha512,**/*.asc,**/*.sig";
+
+    private static final String SIGN_STATE_FILE = "sign-maven-plugin.state";
+
     @Inject
     private MavenProject project;
 
@@ -58,7 +79,13 @@ public class SignMojo extends AbstractMojo {
     private KeyInfoFactory keyInfoFactory;
 
     @Inject
-    private ArtifactSigner artifactSigner;
+    private ArtifactSignerFactory artifactSignerFactory;
+
+    @Inject
+    private Map<String, SignerBackendFactory> signerBackendFactories;
+
+    @Inject
+    private PGPPublicKeyCache publicKeyCache;
 
     /**
      * <p>A <code>serverId</code> from settings.xml which contains configuration for private key used to signing.</p>
@@ -161,9 +188,140 @@ public class SignMojo extends AbstractMojo {
      *
      * @since 1.0.0
      */
-    @Parameter(defaultValue = "**/*.md5,**/*.sha1,**/*.sha256,**/*.sha512,**/*.asc")
+    @Parameter(defaultValue = DEFAULT_EXCLUDES)
     private List<String> excludes = Collections.emptyList();
 
+    /**
+     * <p>Hash algorithm used for signatures: <code>SHA512</code>, <code>SHA384</code>, <code>SHA256</code>,
+     * <code>SHA224</code>, <code>SHA3-512</code>, <code>SHA3-256</code> or <code>auto</code>.</p>
+     *
+     * <p>In <code>auto</code> mode the fastest one on current machine is selected from <code>SHA512</code>,
+     * <code>SHA384</code> and <code>SHA256</code> also preferred by key.</p>
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.hashAlgorithm", defaultValue = PGPSigner.DEFAULT_HASH_ALGORITHM)
+    private String hashAlgorithm = PGPSigner.DEFAULT_HASH_ALGORITHM;
+
+    /**
+     * <p>Format of created signatures:</p>
+     * <ul>
+     *     <li><code>armored</code> - ASCII armored signature with extension <code>.asc</code></li>
+     *     <li><code>binary</code> - binary signature with extension <code>.sig</code></li>
+     *     <li><code>both</code> - both above from one generated signature</li>
+     * </ul>
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.signatureFormat", defaultValue = "armored")
+    private String signatureFormat = "armored";
+
+    /**
+     * <p>Durability of written signatures and manifests:</p>
+     * <ul>
+     *     <li><code>none</code> - files are only written atomically, by move of temporary file into place</li>
+     *     <li><code>batch</code> - all files written by project are moved into place at the end,
+     *     after their content is forced to storage, next each directory is forced once</li>
+     * </ul>
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.durability", defaultValue = "none")
+    private String durability = "none";
+
+    /**
+     * Verify each signature with public key of signing key just after it is created.
+     * <p>
+     * Verification uses digest calculated during signing, so artifacts are not read again.
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.selfVerify", defaultValue = "false")
+    private boolean selfVerify;
+
+    /**
+     * Create signed chunk manifest for artifacts bigger than one chunk.
+     * <p>
+     * Manifest contains SHA-512 hashes of fixed-size chunks of artifact and root of Merkle tree built from them,
+     * it is attached with extension <code>.chunks</code> together with its signature.
+     * Chunks are hashed in parallel, consumers can verify artifact in parallel or partially.
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.chunkManifest", defaultValue = "false")
+    private boolean chunkManifest;
+
+    /**
+     * Size of chunk in MiB used for chunk manifest.
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.chunkSize", defaultValue = "64")
+    private int chunkSize;
+
+    /**
+     * Create one signed manifest with size and SHA-512 hash of all artifacts, attached with extension
+     * <code>.checksums</code> together with its signature.
+     * <p>
+     * Artifacts are hashed in parallel and only one signature is created, so it can be much faster
+     * for projects with many artifacts - eg. for internal repositories.
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.checksumManifest", defaultValue = "false")
+    private boolean checksumManifest;
+
+    /**
+     * Create signature for each artifact. Can be disabled only when <code>checksumManifest</code> is used.
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.artifactSignatures", defaultValue = "true")
+    private boolean artifactSignatures = true;
+
+    /**
+     * Reuse signatures of artifacts not changed since previous build, artifacts are not read at all.
+     * <p>
+     * State of signed artifacts - path, size, modification time and file key of artifact, signing key
+     * and signatures - is stored in project build directory. When anything is changed artifact is signed again.
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.incremental", defaultValue = "false")
+    private boolean incremental;
+
+    /**
+     * <p>Location of signer backend, like <code>socket://localhost:9999</code> or <code>gpg-agent</code>.
+     * Scheme selects backend type, name only means default location of backend.</p>
+     *
+     * <p>Private key is not used, artifacts are hashed locally and only digests are sent to backend,
+     * all digests of project in one batch. Public key must be provided by <code>publicKeyFile</code>.</p>
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.backend")
+    private String signerBackend;
+
+    /**
+     * <p>File with public key of key used by signer backend.
+     * If file contains many keys <code>keyId</code> should be provided.</p>
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.publicKeyFile")
+    private File publicKeyFile;
+
     /**
      * Set excludes list.
      *
@@ -171,12 +329,7 @@ public class SignMojo extends AbstractMojo {
      */
     public void setExcludes(List<String> excludes) {
 
-        String from = File.separatorChar == '/' ? "\\\\" : "/";
-
-        // normalize excludes for current file separator
-        this.excludes = excludes.stream()
-                .map(s -> s.replace(from, File.separator))
-                .collect(Collectors.toList());
+        this.excludes = ProjectArtifacts.normalizeExcludes(excludes);
     }
 
     @Override
@@ -187,6 +340,17 @@ public class SignMojo extends AbstractMojo {
             return;
         }
 
+        if (!artifactSignatures && !checksumManifest) {
+            throw new SignMojoException("artifactSignatures can be disabled only with checksumManifest");
+        }
+
+        if (chunkManifest && chunkSize < 1) {
+            throw new SignMojoException("chunkSize must be at least 1, but was: " + chunkSize);
+        }
+
+        List<SignatureFormat> signatureFormats = SignatureFormat.parse(signatureFormat);
+        AtomicFileWriter.Durability durabilityPolicy = parseDurability(durability);
+
         PGPKeyInfo keyInfo = keyInfoFactory.buildKeyInfo(
                 KeyInfoFactory.KeyInfoRequest.builder()
                         .serverId(serverId)
@@ -195,78 +359,175 @@ public class SignMojo extends AbstractMojo {
                         .file(keyFile)
                         .build());
 
-        if (!keyInfo.isKeyAvailable()) {
-            if (skipNoKey) {
-                LOGGER.info("Sign - key not found - skip execution");
-                return;
+        ArtifactSigner artifactSigner;
+        if (signerBackend != null) {
+            artifactSigner = artifactSignerFactory.getArtifactSigner();
+            artifactSigner.setBackend(createSignerBackend(keyInfo.getId()));
+            // external backend is called once for all digests
+            artifactSigner.setBatchMode(true);
+        } else {
+            if (!keyInfo.isKeyAvailable()) {
+                if (skipNoKey) {
+                    LOGGER.info("Sign - key not found - skip execution");
+                    return;
+                }
+                throw new SignMojoException("Required key for signing not found");
             }
-            throw new SignMojoException("Required key for signing not found");
+
+            artifactSigner = artifactSignerFactory.getArtifactSigner();
+            artifactSigner.setKeyInfo(keyInfo);
         }
 
-        artifactSigner.setKeyInfo(keyInfo);
+        artifactSigner.setSignatureFormats(signatureFormats);
+        artifactSigner.setHashAlgorithm(hashAlgorithm);
+        artifactSigner.setSelfVerify(selfVerify);
+        artifactSigner.setDurability(durabilityPolicy);
 
-        // collect artifact to sign
-        Set<Artifact> artifactsToSign = new HashSet<>();
+        List<Artifact> artifacts = ProjectArtifacts.collect(project, excludes);
 
-        ProjectArtifact projectArtifact = new ProjectArtifact(project);
-        artifactsToSign.add(projectArtifact);
+        int threads = Runtime.getRuntime().availableProcessors();
 
-        Artifact artifact = project.getArtifact();
-        if (artifact.getFile() != null) {
-            artifactsToSign.add(artifact);
-        } else {
-            if (!artifact.equals(projectArtifact)) {
-                LOGGER.info("Primary artifact doesn't have the file to sign, continue with attached artifacts.");
+        SignState signState = null;
+        List<Artifact> artifactsToSign = artifacts;
+        if (artifactSignatures && incremental) {
+            signState = loadSignState(artifactSigner, signatureFormats);
+            artifactsToSign = reuseSignatures(artifactSigner, signState, artifacts);
+        }
+
+        if (artifactSignatures) {
+            // sign and attach signature to project - identical content is signed only once
+            groupIdenticalArtifacts(artifactsToSign).stream()
+                    .map(identicalArtifacts -> signArtifacts(artifactSigner, identicalArtifacts))
+                    .flatMap(List::stream)
+                    .forEach(this::attachSignResult);
+        }
+
+        if (checksumManifest) {
+            artifactSigner.signChecksumManifest(artifacts, threads).forEach(this::attachSignResult);
+        }
+
+        if (chunkManifest) {
+            long chunkSizeBytes = chunkSize * 1024L * 1024L;
+            artifacts.stream()
+                    .filter(a -> a.getFile().length() > chunkSizeBytes)
+                    .map(a -> artifactSigner.signChunkManifest(a, chunkSizeBytes, threads))
+                    .flatMap(List::stream)
+                    .forEach(this::attachSignResult);
+        }
+
+        artifactSigner.flush();
+        artifactSigner.sync();
+
+        if (signState != null) {
+            // state can describe only signatures which are already in place
+            try {
+                signState.save(signStateFile(), artifactSigner.getFileWriter());
+            } catch (IOException e) {
+                throw new SignMojoException(e);
             }
+            artifactSigner.sync();
         }
+    }
+
+    private static Collection<List<Artifact>> groupIdenticalArtifacts(List<Artifact> artifacts) {
+        try {
+            return IdenticalFiles.group(artifacts, Artifact::getFile);
+        } catch (UncheckedIOException e) {
+            throw new SignMojoException(e.getCause());
+        } catch (IllegalStateException e) {
+            throw new SignMojoException(e);
+        }
+    }
 
-        artifactsToSign.addAll(project.getAttachedArtifacts());
+    private Path signStateFile() {
+        return Paths.get(project.getBuild().getDirectory(), SIGN_STATE_FILE);
+    }
 
-        // sign and attach signature to project
-        artifactsToSign.stream()
-                .map(SignMojo::verifyArtifact)
-                .filter(this::shouldBeSigned)
-                .map(artifactSigner::signArtifact)
-                .flatMap(List::stream)
-                .forEach(this::attachSignResult);
+    private SignState loadSignState(ArtifactSigner artifactSigner, List<SignatureFormat> signatureFormats) {
+        try {
+            return SignState.load(signStateFile(), artifactSigner.getKeyFingerprint(),
+                    "formats:" + signatureFormats + " hashAlgorithm:" + hashAlgorithm);
+        } catch (IOException e) {
+            throw new SignMojoException(e);
+        }
     }
 
     /**
-     * Check if artifact has correct data.
+     * Attach existing signatures of not changed artifacts, only file attributes are read.
      *
-     * @param artifact an artifact to check
-     *
-     * @return the same artifact if is acceptable
+     * @return artifacts which must be signed
      */
-    private static Artifact verifyArtifact(Artifact artifact) {
+    private List<Artifact> reuseSignatures(ArtifactSigner artifactSigner, SignState signState,
+            List<Artifact> artifacts) {
+
+        List<Artifact> result = new ArrayList<>();
+        try {
+            for (Artifact artifact : artifacts) {
+                Optional<List<SignResult>> signatures = artifactSigner.expectedSignatures(artifact);
+                if (!signatures.isPresent()) {
+                    result.add(artifact);
+                    continue;
+                }
+
+                Path artifactPath = artifact.getFile().toPath();
+                BasicFileAttributes attributes = Files.readAttributes(artifactPath, BasicFileAttributes.class);
+                List<Path> signaturePaths = signatures.get().stream()
+                        .map(signResult -> signResult.getFile().toPath())
+                        .collect(Collectors.toList());
+
+                if (signState.isUnchanged(artifactPath, attributes, signaturePaths)) {
+                    LOGGER.info("Reuse signatures of not changed artifact: {}", artifact);
+                    signatures.get().forEach(this::attachSignResult);
+                } else {
+                    signState.signed(artifactPath, attributes, signaturePaths);
+                    result.add(artifact);
+                }
+            }
+        } catch (IOException e) {
+            throw new SignMojoException(e);
+        }
+        return result;
+    }
 
-        if (artifact == null) {
-            throw new SignMojoException("null artifacts ...");
+    static AtomicFileWriter.Durability parseDurability(String durability) {
+        try {
+            return AtomicFileWriter.Durability.parse(durability);
+        } catch (IllegalArgumentException e) {
+            throw new SignMojoException(e.getMessage());
         }
+    }
+
+    private SignerBackend createSignerBackend(Long backendKeyId) {
 
-        if (artifact.getFile() == null) {
-            throw new SignMojoException("Artifact: " + artifact + " has no file");
+        // backend name only means default location
+        URI location = URI.create(signerBackend.contains(":") ? signerBackend : signerBackend + ":default");
+        SignerBackendFactory backendFactory = signerBackendFactories.get(location.getScheme());
+        if (backendFactory == null) {
+            throw new SignMojoException("Unknown signer backend: " + location.getScheme()
+                    + ", available: " + signerBackendFactories.keySet());
         }
 
-        return artifact;
-    }
+        if (publicKeyFile == null) {
+            throw new SignMojoException("publicKeyFile is required for signer backend");
+        }
 
-    /**
-     * Check if artifact should be signed.
-     */
-    private boolean shouldBeSigned(Artifact artifact) {
+        PGPPublicKey publicKey = publicKeyCache.getPublicKey(publicKeyFile.toPath(), backendKeyId);
 
-        final Path projectBasePath = project.getBasedir().toPath();
-        final Path artifactPath = artifact.getFile().toPath();
-        final String relativeArtifactPath = projectBasePath.relativize(artifactPath).toString();
+        try {
+            return backendFactory.create(location, publicKey);
+        } catch (IOException e) {
+            throw new SignMojoException(e);
+        }
+    }
 
-        boolean shouldSign = excludes.stream()
-                .noneMatch(exclude -> SelectorUtils.matchPath(exclude, relativeArtifactPath));
+    private static List<SignResult> signArtifacts(ArtifactSigner artifactSigner, List<Artifact> identicalArtifacts) {
 
-        LOGGER.debug("Artifact: {} with relativeArtifactPath: {} shouldSign: {} due to excludes: {}",
-                artifact, relativeArtifactPath, shouldSign, excludes);
+        if (identicalArtifacts.size() == 1) {
+            return artifactSigner.signArtifact(identicalArtifacts.get(0));
+        }
 
-        return shouldSign;
+        LOGGER.debug("Artifacts with identical content: {}", identicalArtifacts);
+        return artifactSigner.signIdenticalArtifacts(identicalArtifacts);
     }
 
     /**
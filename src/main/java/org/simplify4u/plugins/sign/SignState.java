@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.extern.slf4j.Slf4j;
+import org.simplify4u.plugins.sign.utils.AtomicFileWriter;
+
+/**
+ * State of artifacts signed by previous build - allows to reuse signatures of not changed artifacts
+ * without reading them.
+ * <p>
+ * State is a text file, first line contains fingerprint of signing key and signing configuration,
+ * next lines signed artifacts with fields separated by tab:
+ * <code>path size lastModified fileKey</code> and pairs <code>signaturePath signatureSize</code>.
+ * State created for other key or configuration is discarded.
+ *
+ * @author Slawomir Jaranowski
+ */
+@Slf4j
+class SignState {
+
+    private static final String KEY_PREFIX = "key:";
+    private static final String SEPARATOR = "\t";
+
+    private final String header;
+    private final Map<String, String> previous;
+    private final Map<String, PendingEntry> current = new LinkedHashMap<>();
+
+    /**
+     * Artifact signed in current build - signature sizes are known after signatures are written.
+     */
+    private static class PendingEntry {
+        private final BasicFileAttributes attributes;
+        private final List<Path> signatures;
+
+        PendingEntry(BasicFileAttributes attributes, List<Path> signatures) {
+            this.attributes = attributes;
+            this.signatures = signatures;
+        }
+    }
+
+    private SignState(String header, Map<String, String> previous) {
+        this.header = header;
+        this.previous = previous;
+    }
+
+    /**
+     * Load state of previous build.
+     *
+     * @param stateFile      a state file
+     * @param keyFingerprint fingerprint of signing key
+     * @param configuration  signing configuration which has influence on signatures
+     *
+     * @return state
+     *
+     * @throws IOException if some IO problems
+     */
+    static SignState load(Path stateFile, String keyFingerprint, String configuration) throws IOException {
+
+        Map<String, String> previous = new HashMap<>();
+        String header = KEY_PREFIX + keyFingerprint + SEPARATOR + configuration;
+
+        if (Files.exists(stateFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+                if (header.equals(reader.readLine())) {
+                    reader.lines()
+                            .map(line -> line.split(SEPARATOR, 2))
+                            .filter(entry -> entry.length == 2)
+                            .forEach(entry -> previous.put(entry[0], entry[1]));
+                } else {
+                    LOGGER.info("Sign state {} was created for other key or configuration - discard it", stateFile);
+                }
+            }
+        }
+
+        return new SignState(header, previous);
+    }
+
+    /**
+     * Check if artifact and its signatures are not changed since previous build - only file attributes are read.
+     * Not changed artifact is kept in state.
+     *
+     * @param artifact   an artifact file
+     * @param attributes current artifact attributes
+     * @param signatures signature files of artifact
+     *
+     * @return true if signatures can be reused
+     *
+     * @throws IOException if some IO problems
+     */
+    boolean isUnchanged(Path artifact, BasicFileAttributes attributes, List<Path> signatures) throws IOException {
+
+        String key = artifact.toAbsolutePath().toString();
+        String previousState = previous.get(key);
+        if (previousState == null) {
+            return false;
+        }
+
+        for (Path signature : signatures) {
+            if (!Files.isRegularFile(signature)) {
+                return false;
+            }
+        }
+
+        if (previousState.equals(entryState(attributes, signatures))) {
+            current.put(key, new PendingEntry(attributes, signatures));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Add artifact signed in current build.
+     *
+     * @param artifact   an artifact file
+     * @param attributes artifact attributes read before signing
+     * @param signatures signature files of artifact
+     */
+    void signed(Path artifact, BasicFileAttributes attributes, List<Path> signatures) {
+        current.put(artifact.toAbsolutePath().toString(), new PendingEntry(attributes, signatures));
+    }
+
+    /**
+     * Save state of current build - must be called after all signatures are written and synced.
+     *
+     * @param stateFile  a state file
+     * @param fileWriter a writer used for signatures - state has the same durability
+     *
+     * @throws IOException if some IO problems
+     */
+    void save(Path stateFile, AtomicFileWriter fileWriter) throws IOException {
+
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, PendingEntry> entry : current.entrySet()) {
+            PendingEntry pendingEntry = entry.getValue();
+            if (pendingEntry.signatures.stream().allMatch(Files::isRegularFile)) {
+                lines.add(entry.getKey() + SEPARATOR + entryState(pendingEntry.attributes, pendingEntry.signatures));
+            }
+        }
+
+        fileWriter.write(stateFile, outputStream -> {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            writer.write(header);
+            writer.newLine();
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+            writer.flush();
+        });
+    }
+
+    private static String entryState(BasicFileAttributes attributes, List<Path> signatures) throws IOException {
+
+        Object fileKey = attributes.fileKey();
+        StringBuilder state = new StringBuilder()
+                .append(attributes.size()).append(SEPARATOR)
+                .append(attributes.lastModifiedTime()).append(SEPARATOR)
+                .append(fileKey != null ? fileKey : "-");
+
+        for (Path signature : signatures) {
+            state.append(SEPARATOR).append(signature.toAbsolutePath())
+                    .append(SEPARATOR).append(Files.size(signature));
+        }
+        return state.toString();
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.simplify4u.plugins.sign.openpgp.PGPPublicKeyCache;
+import org.simplify4u.plugins.sign.openpgp.PGPSignerException;
+import org.simplify4u.plugins.sign.openpgp.PGPVerifier;
+import org.simplify4u.plugins.sign.openpgp.SignatureFormat;
+import org.simplify4u.plugins.sign.utils.ParallelTasks;
+
+/**
+ * Verify Open PGP / GPG signatures of all of the project's artifacts.
+ * <p>
+ * Each artifact which should be signed must have attached signature valid for one of given public keys.
+ * Artifacts are verified in parallel.
+ * <p>
+ * Artifacts transformed during install and deploy, like consumer pom, are skipped - signature is made for transformed
+ * content which is not available as file.
+ *
+ * @author Slawomir Jaranowski
+ * @since 1.1.1
+ */
+@Slf4j
+@Mojo(name = "verify-signatures", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
+public class VerifySignaturesMojo extends AbstractMojo {
+
+    @Inject
+    private MavenProject project;
+
+    @Inject
+    private PGPPublicKeyCache publicKeyCache;
+
+    @Inject
+    private PGPVerifier pgpVerifier;
+
+    /**
+     * File with public keys used for verification - single key or whole keyring, armored or binary.
+     * <p>
+     * Key can be exported by:
+     * <pre>
+     *      gpg --armor --export
+     * </pre>
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.publicKeyFile", required = true)
+    private File publicKeyFile;
+
+    /**
+     * Number of threads used for verification. By default number of available processors.
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.verify.threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * Skip the execution of verification.
+     *
+     * @since 1.1.1
+     */
+    @Setter(AccessLevel.PACKAGE)
+    @Parameter(property = "sign.verify.skip", defaultValue = "false")
+    private boolean skip;
+
+    /**
+     * A list of files to exclude from verification. Should be the same as for <code>sign</code> goal.
+     *
+     * @since 1.1.1
+     */
+    @Parameter(defaultValue = SignMojo.DEFAULT_EXCLUDES)
+    private List<String> excludes = Collections.emptyList();
+
+    /**
+     * Set excludes list.
+     *
+     * @param excludes a list from plugin configuration
+     */
+    public void setExcludes(List<String> excludes) {
+        this.excludes = ProjectArtifacts.normalizeExcludes(excludes);
+    }
+
+    @Override
+    public void execute() {
+
+        if (skip) {
+            LOGGER.info("Verify signatures - skip execution");
+            return;
+        }
+
+        PGPPublicKeyRingCollection publicKeys = publicKeyCache.getPublicKeys(publicKeyFile.toPath());
+
+        Map<String, File> signatures = new HashMap<>();
+        project.getAttachedArtifacts().stream()
+                .filter(VerifySignaturesMojo::isSignature)
+                .forEach(signature -> signatures.put(artifactKey(signature), signature.getFile()));
+
+        List<Artifact> artifacts = ProjectArtifacts.collect(project, excludes).stream()
+                .filter(artifact -> !isSignature(artifact))
+                .collect(Collectors.toList());
+
+        List<String> failures = verifyArtifacts(artifacts, signatures, publicKeys);
+
+        if (!failures.isEmpty()) {
+            failures.forEach(LOGGER::error);
+            throw new SignMojoException("Signature verification failed for " + failures.size()
+                    + " artifact(s): " + String.join(", ", failures));
+        }
+    }
+
+    private List<String> verifyArtifacts(List<Artifact> artifacts, Map<String, File> signatures,
+            PGPPublicKeyRingCollection publicKeys) {
+
+        int threadsCount = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        List<Callable<Optional<String>>> tasks = new ArrayList<>();
+        for (Artifact artifact : artifacts) {
+            File signature = signatures.get(artifactKey(artifact));
+            tasks.add(() -> verifyArtifact(artifact, signature, publicKeys));
+        }
+
+        try {
+            List<String> failures = new ArrayList<>();
+            ParallelTasks.run(tasks, threadsCount).forEach(result -> result.ifPresent(failures::add));
+            return failures;
+        } catch (UncheckedIOException e) {
+            throw new SignMojoException(e.getCause());
+        } catch (IllegalStateException e) {
+            throw new SignMojoException(e);
+        }
+    }
+
+    private Optional<String> verifyArtifact(Artifact artifact, File signature,
+            PGPPublicKeyRingCollection publicKeys) {
+
+        if (signature == null) {
+            return Optional.of(artifact + " - signature not found");
+        }
+
+        try (InputStream artifactInputStream = new BufferedInputStream(
+                Files.newInputStream(artifact.getFile().toPath()));
+             InputStream signatureInputStream = Files.newInputStream(signature.toPath())) {
+
+            pgpVerifier.verify(artifactInputStream, signatureInputStream, publicKeys);
+            LOGGER.info("Valid signature: {} for artifact: {}", signature, artifact);
+            return Optional.empty();
+        } catch (PGPSignerException | IOException e) {
+            return Optional.of(artifact + " - " + e.getMessage());
+        }
+    }
+
+    private static boolean isSignature(Artifact artifact) {
+        return SignatureFormat.forFileName(artifact.getArtifactHandler().getExtension()).isPresent();
+    }
+
+    /**
+     * Signature has the same key as signed artifact.
+     */
+    private static String artifactKey(Artifact artifact) {
+
+        String extension = artifact.getArtifactHandler().getExtension();
+        int suffixLength = SignatureFormat.forFileName(extension)
+                .map(format -> format.getExtension().length())
+                .orElse(0);
+        extension = extension.substring(0, extension.length() - suffixLength);
+
+        return Optional.ofNullable(artifact.getClassifier()).orElse("") + ':' + extension;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.ProtocolFamily;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.openpgp.PGPException;
+
+/**
+ * Client side of Assuan protocol used by gpg-agent.
+ * <p>
+ * Commands can be sent in pipeline - many commands at once, next responses are read in the same order.
+ * <p>
+ * Unix domain socket is used when available (Java 16+), socket file being a regular file is treated as
+ * Assuan socket emulation used on Windows - TCP port and nonce.
+ *
+ * @author Slawomir Jaranowski
+ */
+@Slf4j
+class AssuanConnection implements Closeable {
+
+    private static final int MAX_LINE_LENGTH = 1000;
+    private static final int NONCE_LENGTH = 16;
+
+    private final Closeable socket;
+    private final InputStream inputStream;
+    private final OutputStream outputStream;
+
+    private AssuanConnection(Closeable socket, InputStream inputStream, OutputStream outputStream) {
+        this.socket = socket;
+        this.inputStream = inputStream;
+        this.outputStream = new BufferedOutputStream(outputStream);
+    }
+
+    /**
+     * Connect to Assuan server and read greeting.
+     *
+     * @param socketFile a server socket file
+     *
+     * @return a connection
+     *
+     * @throws IOException  if connection can not be established
+     * @throws PGPException if server respond with error
+     */
+    static AssuanConnection open(Path socketFile) throws IOException, PGPException {
+
+        AssuanConnection connection;
+        if (Files.isRegularFile(socketFile)) {
+            connection = openEmulated(socketFile);
+        } else {
+            connection = openUnix(socketFile);
+        }
+
+        try {
+            connection.readResponse();
+        } catch (IOException | PGPException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    private static AssuanConnection openEmulated(Path socketFile) throws IOException {
+
+        byte[] content = Files.readAllBytes(socketFile);
+        int portEnd = indexOf(content, (byte) '\n');
+        if (portEnd < 0 || content.length - portEnd - 1 != NONCE_LENGTH) {
+            throw new IOException("Invalid Assuan socket file: " + socketFile);
+        }
+
+        int port = Integer.parseInt(new String(content, 0, portEnd, StandardCharsets.US_ASCII).trim());
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        try {
+            socket.getOutputStream().write(content, portEnd + 1, NONCE_LENGTH);
+            return new AssuanConnection(socket, socket.getInputStream(), socket.getOutputStream());
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private static AssuanConnection openUnix(Path socketFile) throws IOException {
+
+        SocketChannel channel;
+        SocketAddress address;
+        try {
+            // Unix domain socket API is available since Java 16
+            address = (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                    .getMethod("of", Path.class).invoke(null, socketFile);
+            ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+            channel = (SocketChannel) SocketChannel.class.getMethod("open", ProtocolFamily.class)
+                    .invoke(null, unix);
+        } catch (InvocationTargetException e) {
+            throw new IOException(e.getCause());
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            throw new IOException("Unix domain socket requires Java 16 or newer", e);
+        }
+
+        try {
+            channel.connect(address);
+        } catch (IOException e) {
+            channel.close();
+            throw new IOException("Can not connect to: " + socketFile, e);
+        }
+        return new AssuanConnection(channel, Channels.newInputStream(channel), Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Add command to pipeline - command is sent on {@link #flush()}.
+     *
+     * @param command a command line
+     *
+     * @throws IOException if some IO problems
+     */
+    void send(String command) throws IOException {
+        LOGGER.debug("-> {}", command);
+        outputStream.write(command.getBytes(StandardCharsets.UTF_8));
+        outputStream.write('\n');
+    }
+
+    /**
+     * Send all pipelined commands.
+     *
+     * @throws IOException if some IO problems
+     */
+    void flush() throws IOException {
+        outputStream.flush();
+    }
+
+    /**
+     * Read response for next command.
+     *
+     * @return data sent by server in response, can be empty
+     *
+     * @throws IOException  if some IO problems
+     * @throws PGPException if server respond with error or inquire
+     */
+    byte[] readResponse() throws IOException, PGPException {
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        while (true) {
+            byte[] line = readLine();
+            String lineStr = new String(line, StandardCharsets.UTF_8);
+
+            if (lineStr.equals("OK") || lineStr.startsWith("OK ")) {
+                return data.toByteArray();
+            } else if (lineStr.startsWith("D ")) {
+                decodeData(line, data);
+            } else if (lineStr.startsWith("ERR ")) {
+                throw new PGPException("gpg-agent error: " + lineStr.substring(4));
+            } else if (lineStr.startsWith("INQUIRE ")) {
+                cancelInquire(lineStr.substring(8));
+            } else if (lineStr.startsWith("S ") || lineStr.startsWith("#")) {
+                LOGGER.debug("<- {}", lineStr);
+            } else {
+                throw new PGPException("Unexpected response from gpg-agent: " + lineStr);
+            }
+        }
+    }
+
+    /**
+     * Server inquire, eg. for passphrase or about launched pinentry, means that key is locked.
+     * We can not interact with user during build, so inquire is canceled.
+     */
+    private void cancelInquire(String inquire) throws IOException, PGPException {
+        LOGGER.debug("<- INQUIRE {}", inquire);
+        send("CAN");
+        flush();
+        throw new PGPException("gpg-agent inquire: " + inquire.split(" ")[0]
+                + " - key must be unlocked in gpg-agent before build, eg. by gpg-preset-passphrase");
+    }
+
+    private byte[] readLine() throws IOException {
+
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = inputStream.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("Unexpected end of stream from gpg-agent");
+            }
+            if (line.size() >= MAX_LINE_LENGTH) {
+                throw new IOException("Too long line from gpg-agent");
+            }
+            line.write(b);
+        }
+        return line.toByteArray();
+    }
+
+    /**
+     * Data line - bytes are sent as is, only <code>%</code>, CR and LF are escaped as <code>%XX</code>.
+     */
+    private static void decodeData(byte[] line, ByteArrayOutputStream data) {
+        for (int i = 2; i < line.length; i++) {
+            if (line[i] == '%' && i + 2 < line.length) {
+                data.write(Integer.parseInt(new String(line, i + 1, 2, StandardCharsets.US_ASCII), 16));
+                i += 2;
+            } else {
+                data.write(line[i]);
+            }
+        }
+    }
+
+    private static int indexOf(byte[] array, byte value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPublicKey;
+
+/**
+ * Default backend - private key in process memory, signing by Bouncy Castle.
+ *
+ * @author Slawomir Jaranowski
+ */
+class BcSignerBackend implements SignerBackend {
+
+    private final PGPPrivateKey privateKey;
+    private final PGPPublicKey publicKey;
+
+    BcSignerBackend(PGPPrivateKey privateKey, PGPPublicKey publicKey) {
+        this.privateKey = privateKey;
+        this.publicKey = publicKey;
+    }
+
+    @Override
+    public PGPPublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    @Override
+    public List<byte[]> sign(List<SignRequest> requests) throws PGPException {
+        List<byte[]> result = new ArrayList<>();
+        for (SignRequest request : requests) {
+            result.add(DigestSignatures.sign(privateKey, publicKey.getAlgorithm(), request.getHashAlgorithm(),
+                    request.getDigest()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.asn1.oiw.OIWObjectIdentifiers;
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.bcpg.PublicKeyAlgorithmTags;
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.CryptoException;
+import org.bouncycastle.crypto.Signer;
+import org.bouncycastle.crypto.digests.NullDigest;
+import org.bouncycastle.crypto.params.Ed25519PrivateKeyParameters;
+import org.bouncycastle.crypto.params.Ed25519PublicKeyParameters;
+import org.bouncycastle.crypto.signers.DSADigestSigner;
+import org.bouncycastle.crypto.signers.DSASigner;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.crypto.signers.Ed25519Signer;
+import org.bouncycastle.crypto.signers.Ed448Signer;
+import org.bouncycastle.crypto.signers.RSADigestSigner;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.operator.bc.BcPGPKeyConverter;
+
+/**
+ * Operations on signature of already calculated digest - the same signers as Bouncy Castle uses,
+ * but without hashing data once again.
+ * <p>
+ * OpenPGP signature is calculated over hash of data and signature trailer,
+ * so having the final digest, signature can be checked without access to data.
+ *
+ * @author Slawomir Jaranowski
+ */
+final class DigestSignatures {
+
+    private DigestSignatures() {
+    }
+
+    /**
+     * Create signature value for given digest.
+     *
+     * @param privateKey    a private key
+     * @param keyAlgorithm  an algorithm of key
+     * @param hashAlgorithm an algorithm used to calculate digest
+     * @param digest        final digest of data and signature trailer
+     *
+     * @return signature value encoded like {@link org.bouncycastle.openpgp.operator.PGPContentSigner#getSignature()}
+     *
+     * @throws PGPException if key or algorithm is not supported
+     */
+    static byte[] sign(PGPPrivateKey privateKey, int keyAlgorithm, int hashAlgorithm, byte[] digest)
+            throws PGPException {
+
+        CipherParameters keyParam = new BcPGPKeyConverter().getPrivateKey(privateKey);
+        Signer signer = createSigner(keyAlgorithm, hashAlgorithm, keyParam);
+        signer.init(true, keyParam);
+        signer.update(digest, 0, digest.length);
+        try {
+            return signer.generateSignature();
+        } catch (CryptoException e) {
+            throw new PGPException("Unable to create signature", e);
+        }
+    }
+
+    /**
+     * Verify signature value for given digest.
+     *
+     * @param publicKey     a public key
+     * @param hashAlgorithm an algorithm used to calculate digest
+     * @param digest        final digest of data and signature trailer
+     * @param signature     signature value as returned by {@link org.bouncycastle.openpgp.PGPSignature#getSignature()}
+     *
+     * @return true if signature is valid
+     *
+     * @throws PGPException if key or algorithm is not supported
+     */
+    static boolean verify(PGPPublicKey publicKey, int hashAlgorithm, byte[] digest, byte[] signature)
+            throws PGPException {
+
+        CipherParameters keyParam = new BcPGPKeyConverter().getPublicKey(publicKey);
+        Signer signer = createSigner(publicKey.getAlgorithm(), hashAlgorithm, keyParam);
+        signer.init(false, keyParam);
+        signer.update(digest, 0, digest.length);
+        return signer.verifySignature(signature);
+    }
+
+    // RSA_SIGN is deprecated, but keys with such algorithm still exist
+    @SuppressWarnings("deprecation")
+    private static Signer createSigner(int keyAlgorithm, int hashAlgorithm, CipherParameters keyParam)
+            throws PGPException {
+
+        switch (keyAlgorithm) {
+            case PublicKeyAlgorithmTags.RSA_GENERAL:
+            case PublicKeyAlgorithmTags.RSA_SIGN:
+                return new RSADigestSigner(new NullDigest(), digestOid(hashAlgorithm));
+            case PublicKeyAlgorithmTags.DSA:
+                return new DSADigestSigner(new DSASigner(), new NullDigest());
+            case PublicKeyAlgorithmTags.ECDSA:
+                return new DSADigestSigner(new ECDSASigner(), new NullDigest());
+            case PublicKeyAlgorithmTags.EDDSA_LEGACY:
+                return keyParam instanceof Ed25519PublicKeyParameters
+                        || keyParam instanceof Ed25519PrivateKeyParameters ? new Ed25519Signer()
+                        : new Ed448Signer(new byte[0]);
+            case PublicKeyAlgorithmTags.Ed25519:
+                return new Ed25519Signer();
+            case PublicKeyAlgorithmTags.Ed448:
+                return new Ed448Signer(new byte[0]);
+            default:
+                throw new PGPException("Unsupported key algorithm: " + keyAlgorithm);
+        }
+    }
+
+    private static ASN1ObjectIdentifier digestOid(int hashAlgorithm) throws PGPException {
+        switch (hashAlgorithm) {
+            case HashAlgorithmTags.SHA1:
+                return OIWObjectIdentifiers.idSHA1;
+            case HashAlgorithmTags.SHA224:
+                return NISTObjectIdentifiers.id_sha224;
+            case HashAlgorithmTags.SHA256:
+                return NISTObjectIdentifiers.id_sha256;
+            case HashAlgorithmTags.SHA384:
+                return NISTObjectIdentifiers.id_sha384;
+            case HashAlgorithmTags.SHA512:
+                return NISTObjectIdentifiers.id_sha512;
+            case HashAlgorithmTags.SHA3_256:
+                return NISTObjectIdentifiers.id_sha3_256;
+            case HashAlgorithmTags.SHA3_512:
+                return NISTObjectIdentifiers.id_sha3_512;
+            default:
+                throw new PGPException("Unsupported hash algorithm: " + hashAlgorithm);
+        }
+    }
+}
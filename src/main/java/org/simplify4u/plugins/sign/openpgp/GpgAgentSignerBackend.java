@@ -0,0 +1,231 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.bcpg.PublicKeyAlgorithmTags;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.BigIntegers;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * Backend which uses private key held by gpg-agent - key is not exported and not decrypted by plugin,
+ * gpg-agent only signs digests calculated locally.
+ * <p>
+ * Key is selected by keygrip calculated from public key, all requests of batch are sent by one connection,
+ * in pipeline of {@value #PIPELINE_DEPTH} requests.
+ *
+ * @author Slawomir Jaranowski
+ */
+@Slf4j
+class GpgAgentSignerBackend implements SignerBackend {
+
+    private static final int PIPELINE_DEPTH = 16;
+
+    private static final int ED25519_VALUE_LENGTH = 32;
+
+    private final Path socketFile;
+    private final PGPPublicKey publicKey;
+    private final String keygrip;
+
+    GpgAgentSignerBackend(Path socketFile, PGPPublicKey publicKey) throws PGPException {
+        this.socketFile = socketFile;
+        this.publicKey = publicKey;
+        this.keygrip = Keygrip.calculate(publicKey);
+        LOGGER.debug("gpg-agent socket: {}, keygrip: {}", socketFile, keygrip);
+    }
+
+    @Override
+    public PGPPublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    @Override
+    public List<byte[]> sign(List<SignRequest> requests) throws IOException, PGPException {
+
+        List<byte[]> result = new ArrayList<>();
+
+        try (AssuanConnection connection = AssuanConnection.open(socketFile)) {
+
+            connection.send("SIGKEY " + keygrip);
+            connection.flush();
+            connection.readResponse();
+
+            for (int start = 0; start < requests.size(); start += PIPELINE_DEPTH) {
+                List<SignRequest> pipeline = requests.subList(start,
+                        Math.min(start + PIPELINE_DEPTH, requests.size()));
+
+                for (SignRequest request : pipeline) {
+                    connection.send("SETHASH " + gcryptHashAlgorithm(request.getHashAlgorithm()) + " "
+                            + Hex.toHexString(request.getDigest()).toUpperCase(Locale.ROOT));
+                    connection.send("PKSIGN");
+                }
+                connection.flush();
+
+                for (int i = 0; i < pipeline.size(); i++) {
+                    // SETHASH
+                    connection.readResponse();
+                    // PKSIGN
+                    result.add(signatureValue(connection.readResponse()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Convert signature from gpg-agent S-expression to form returned by
+     * {@link org.bouncycastle.openpgp.operator.PGPContentSigner#getSignature()}.
+     */
+    // RSA_SIGN is deprecated, but keys with such algorithm still exist
+    @SuppressWarnings("deprecation")
+    private byte[] signatureValue(byte[] response) throws PGPException {
+
+        // (7:sig-val(<algorithm>(1:r<len>:<r>)(1:s<len>:<s>)))
+        List<Object> sigVal = new SExpression(response).parse();
+        if (sigVal.size() < 2 || !"sig-val".equals(atomString(sigVal.get(0)))
+                || !(sigVal.get(1) instanceof List)) {
+            throw new PGPException("Unexpected signature from gpg-agent");
+        }
+        List<?> values = (List<?>) sigVal.get(1);
+
+        switch (publicKey.getAlgorithm()) {
+            case PublicKeyAlgorithmTags.RSA_GENERAL:
+            case PublicKeyAlgorithmTags.RSA_SIGN:
+                return BigIntegers.asUnsignedByteArray(signatureParam(values, "s"));
+            case PublicKeyAlgorithmTags.ECDSA:
+                try {
+                    return new DERSequence(new ASN1Encodable[]{
+                            new ASN1Integer(signatureParam(values, "r")),
+                            new ASN1Integer(signatureParam(values, "s"))}).getEncoded();
+                } catch (IOException e) {
+                    throw new PGPException("Unable to encode signature", e);
+                }
+            case PublicKeyAlgorithmTags.EDDSA_LEGACY:
+            case PublicKeyAlgorithmTags.Ed25519:
+                return Arrays.concatenate(
+                        BigIntegers.asUnsignedByteArray(ED25519_VALUE_LENGTH, signatureParam(values, "r")),
+                        BigIntegers.asUnsignedByteArray(ED25519_VALUE_LENGTH, signatureParam(values, "s")));
+            default:
+                throw new PGPException("Unsupported key algorithm for gpg-agent: " + publicKey.getAlgorithm());
+        }
+    }
+
+    private static BigInteger signatureParam(List<?> values, String name) throws PGPException {
+        for (Object value : values) {
+            if (value instanceof List && ((List<?>) value).size() == 2
+                    && name.equals(atomString(((List<?>) value).get(0)))) {
+                return new BigInteger(1, (byte[]) ((List<?>) value).get(1));
+            }
+        }
+        throw new PGPException("Signature value: " + name + " not found in gpg-agent response");
+    }
+
+    private static String atomString(Object atom) {
+        return atom instanceof byte[] ? new String((byte[]) atom, StandardCharsets.US_ASCII) : null;
+    }
+
+    /**
+     * gpg-agent expects libgcrypt hash algorithm identifiers.
+     */
+    private static int gcryptHashAlgorithm(int hashAlgorithm) throws PGPException {
+        switch (hashAlgorithm) {
+            case HashAlgorithmTags.SHA1:
+            case HashAlgorithmTags.SHA224:
+            case HashAlgorithmTags.SHA256:
+            case HashAlgorithmTags.SHA384:
+            case HashAlgorithmTags.SHA512:
+                // the same values as in OpenPGP
+                return hashAlgorithm;
+            case HashAlgorithmTags.SHA3_256:
+                return 313;
+            case HashAlgorithmTags.SHA3_512:
+                return 315;
+            default:
+                throw new PGPException("Unsupported hash algorithm for gpg-agent: " + hashAlgorithm);
+        }
+    }
+
+    /**
+     * Parser of canonical S-expression, atoms are returned as byte arrays, lists as {@link List}.
+     */
+    private static class SExpression {
+
+        private final byte[] data;
+        private int pos;
+
+        SExpression(byte[] data) {
+            this.data = data;
+        }
+
+        List<Object> parse() throws PGPException {
+            List<Object> result = parseList();
+            if (pos != data.length) {
+                throw new PGPException("Invalid S-expression from gpg-agent");
+            }
+            return result;
+        }
+
+        private List<Object> parseList() throws PGPException {
+            expect('(');
+            List<Object> list = new ArrayList<>();
+            while (pos < data.length && data[pos] != ')') {
+                if (data[pos] == '(') {
+                    list.add(parseList());
+                } else {
+                    list.add(parseAtom());
+                }
+            }
+            expect(')');
+            return list;
+        }
+
+        private byte[] parseAtom() throws PGPException {
+            int len = 0;
+            while (pos < data.length && data[pos] >= '0' && data[pos] <= '9') {
+                len = len * 10 + data[pos++] - '0';
+            }
+            expect(':');
+            if (pos + len > data.length) {
+                throw new PGPException("Invalid S-expression from gpg-agent");
+            }
+            byte[] atom = Arrays.copyOfRange(data, pos, pos + len);
+            pos += len;
+            return atom;
+        }
+
+        private void expect(char c) throws PGPException {
+            if (pos >= data.length || data[pos] != c) {
+                throw new PGPException("Invalid S-expression from gpg-agent");
+            }
+            pos++;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+
+/**
+ * Factory for gpg-agent backend, location: <code>gpg-agent:default</code> or
+ * <code>gpg-agent:///path/to/S.gpg-agent</code>.
+ * <p>
+ * Default socket is taken from <code>gpgconf --list-dirs agent-socket</code>,
+ * or <code>S.gpg-agent</code> in <code>GNUPGHOME</code> when <code>gpgconf</code> is not available.
+ *
+ * @author Slawomir Jaranowski
+ */
+@Slf4j
+@Singleton
+@Named(GpgAgentSignerBackendFactory.NAME)
+public class GpgAgentSignerBackendFactory implements SignerBackendFactory {
+
+    /**
+     * Backend location scheme.
+     */
+    public static final String NAME = "gpg-agent";
+
+    private static final String AGENT_SOCKET = "S.gpg-agent";
+
+    @Override
+    public SignerBackend create(URI location, PGPPublicKey publicKey) {
+
+        Path socketFile = Optional.ofNullable(location.getRawPath())
+                .filter(path -> !path.isEmpty())
+                .map(path -> Paths.get(URI.create("file://" + path)))
+                .orElseGet(GpgAgentSignerBackendFactory::defaultSocketFile);
+
+        try {
+            return new GpgAgentSignerBackend(socketFile, publicKey);
+        } catch (PGPException e) {
+            throw new PGPSignerException(e);
+        }
+    }
+
+    private static Path defaultSocketFile() {
+
+        try {
+            Process process = new ProcessBuilder("gpgconf", "--list-dirs", "agent-socket")
+                    .redirectErrorStream(true)
+                    .start();
+
+            String socket;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                socket = reader.readLine();
+            }
+
+            if (process.waitFor() == 0 && socket != null && !socket.trim().isEmpty()) {
+                return Paths.get(socket.trim());
+            }
+        } catch (IOException e) {
+            LOGGER.debug("gpgconf not available", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PGPSignerException(e);
+        }
+
+        String gnupgHome = Optional.ofNullable(System.getenv("GNUPGHOME"))
+                .orElseGet(() -> Paths.get(System.getProperty("user.home"), ".gnupg").toString());
+        return Paths.get(gnupgHome, AGENT_SOCKET);
+    }
+}
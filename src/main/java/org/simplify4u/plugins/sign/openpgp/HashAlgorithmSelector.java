@@ -0,0 +1,258 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPSignatureSubpacketVector;
+import org.bouncycastle.openpgp.operator.PGPDigestCalculator;
+import org.bouncycastle.openpgp.operator.PGPDigestCalculatorProvider;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDigestCalculatorProvider;
+import org.bouncycastle.openpgp.operator.jcajce.JcaPGPDigestCalculatorProviderBuilder;
+
+/**
+ * Selection of hash algorithm used for signatures.
+ * <p>
+ * In <code>auto</code> mode algorithm is selected from allowed algorithms also preferred by key,
+ * the fastest one on current machine wins. Digest throughput is measured once per JVM.
+ *
+ * @author Slawomir Jaranowski
+ */
+@Slf4j
+final class HashAlgorithmSelector {
+
+    static final String AUTO = "auto";
+
+    private static final Map<String, Integer> ALGORITHMS = new LinkedHashMap<>();
+
+    static {
+        ALGORITHMS.put("SHA512", HashAlgorithmTags.SHA512);
+        ALGORITHMS.put("SHA384", HashAlgorithmTags.SHA384);
+        ALGORITHMS.put("SHA256", HashAlgorithmTags.SHA256);
+        ALGORITHMS.put("SHA224", HashAlgorithmTags.SHA224);
+        ALGORITHMS.put("SHA3-512", HashAlgorithmTags.SHA3_512);
+        ALGORITHMS.put("SHA3-256", HashAlgorithmTags.SHA3_256);
+    }
+
+    /**
+     * Candidates for auto mode in order of preference when throughput is the same.
+     */
+    private static final List<Integer> AUTO_ALGORITHMS = Collections.unmodifiableList(Arrays.asList(
+            HashAlgorithmTags.SHA512, HashAlgorithmTags.SHA384, HashAlgorithmTags.SHA256));
+
+    private static final int CALIBRATION_BUFFER_SIZE = 1024 * 1024;
+    private static final int CALIBRATION_WARM_UP_BUFFERS = 32;
+    private static final int CALIBRATION_ROUNDS = 4;
+    private static final int CALIBRATION_BUFFERS_PER_ROUND = 8;
+
+    private static final Map<Integer, Double> THROUGHPUT_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Digest calculators from JCA - JDK provides intrinsics for SHA family on modern CPUs.
+     * Algorithms not available in JCA, like SHA3 on Java 8, are calculated by Bouncy Castle.
+     */
+    static final PGPDigestCalculatorProvider DIGEST_CALCULATOR_PROVIDER = buildDigestCalculatorProvider();
+
+    private HashAlgorithmSelector() {
+    }
+
+    /**
+     * Validate configuration value.
+     *
+     * @param name algorithm name or <code>auto</code>
+     *
+     * @throws PGPSignerException if algorithm is not supported
+     */
+    static void validate(String name) {
+        if (!AUTO.equalsIgnoreCase(name.trim())) {
+            algorithmId(name);
+        }
+    }
+
+    /**
+     * Select algorithm by configuration.
+     *
+     * @param name algorithm name or <code>auto</code>
+     * @param keys keys with preferences - signing key and its master key
+     *
+     * @return algorithm id from {@link HashAlgorithmTags}
+     */
+    static int select(String name, List<PGPPublicKey> keys) {
+
+        if (!AUTO.equalsIgnoreCase(name.trim())) {
+            return algorithmId(name);
+        }
+
+        Set<Integer> preferred = preferredAlgorithms(keys);
+        List<Integer> candidates = AUTO_ALGORITHMS.stream()
+                .filter(algorithm -> preferred.isEmpty() || preferred.contains(algorithm))
+                .collect(Collectors.toList());
+
+        if (candidates.isEmpty()) {
+            LOGGER.warn("None of allowed hash algorithms: {} is preferred by key - use all of them",
+                    algorithmNames(AUTO_ALGORITHMS));
+            candidates = AUTO_ALGORITHMS;
+        }
+
+        int selected = candidates.get(0);
+        double selectedThroughput = 0;
+        List<String> report = new ArrayList<>();
+        for (int algorithm : candidates) {
+            double algorithmThroughput = throughput(algorithm);
+            report.add(String.format(Locale.ROOT, "%s=%.0f MiB/s", algorithmName(algorithm), algorithmThroughput));
+            if (algorithmThroughput > selectedThroughput) {
+                selected = algorithm;
+                selectedThroughput = algorithmThroughput;
+            }
+        }
+
+        LOGGER.info("Hash algorithm: {} selected from candidates: {}", algorithmName(selected), report);
+        return selected;
+    }
+
+    /**
+     * Name of algorithm.
+     *
+     * @param algorithm algorithm id
+     *
+     * @return algorithm name
+     */
+    static String algorithmName(int algorithm) {
+        return ALGORITHMS.entrySet().stream()
+                .filter(entry -> entry.getValue() == algorithm)
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElse(String.valueOf(algorithm));
+    }
+
+    private static List<String> algorithmNames(List<Integer> algorithms) {
+        return algorithms.stream().map(HashAlgorithmSelector::algorithmName).collect(Collectors.toList());
+    }
+
+    private static int algorithmId(String name) {
+        Integer algorithm = ALGORITHMS.get(name.trim().toUpperCase(Locale.ROOT).replace("SHA-", "SHA"));
+        if (algorithm == null) {
+            throw new PGPSignerException("Unsupported hash algorithm: " + name + ", expected one of: "
+                    + ALGORITHMS.keySet() + " or " + AUTO);
+        }
+        return algorithm;
+    }
+
+    /**
+     * Preferred hash algorithms from self signatures of keys.
+     */
+    private static Set<Integer> preferredAlgorithms(List<PGPPublicKey> keys) {
+
+        Set<Integer> result = new LinkedHashSet<>();
+        for (PGPPublicKey key : keys) {
+            Iterator<PGPSignature> signatures = key.getSignatures();
+            while (signatures.hasNext()) {
+                PGPSignature signature = signatures.next();
+                PGPSignatureSubpacketVector hashedSubPackets = signature.getHashedSubPackets();
+                if (signature.getKeyID() == key.getKeyID() && hashedSubPackets != null
+                        && hashedSubPackets.getPreferredHashAlgorithms() != null) {
+                    Arrays.stream(hashedSubPackets.getPreferredHashAlgorithms()).forEach(result::add);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Digest throughput in MiB/s, measured once per JVM.
+     * <p>
+     * Digest is warmed up before measurement, so JIT can compile it and use intrinsics - without warm up
+     * interpreted code is measured, which can prefer other algorithm than the fastest in long build.
+     * Result is the best of a few short rounds.
+     */
+    private static double throughput(int algorithm) {
+        return THROUGHPUT_CACHE.computeIfAbsent(algorithm, HashAlgorithmSelector::calibrate);
+    }
+
+    private static double calibrate(int algorithm) {
+
+        byte[] buffer = new byte[CALIBRATION_BUFFER_SIZE];
+        double best = 0;
+
+        try {
+            PGPDigestCalculator digestCalculator = DIGEST_CALCULATOR_PROVIDER.get(algorithm);
+
+            try (OutputStream outputStream = digestCalculator.getOutputStream()) {
+                for (int i = 0; i < CALIBRATION_WARM_UP_BUFFERS; i++) {
+                    outputStream.write(buffer);
+                }
+            }
+            digestCalculator.getDigest();
+
+            for (int round = 0; round < CALIBRATION_ROUNDS; round++) {
+                long start = System.nanoTime();
+                try (OutputStream outputStream = digestCalculator.getOutputStream()) {
+                    for (int i = 0; i < CALIBRATION_BUFFERS_PER_ROUND; i++) {
+                        outputStream.write(buffer);
+                    }
+                }
+                digestCalculator.getDigest();
+                long time = Math.max(System.nanoTime() - start, 1);
+                best = Math.max(best, CALIBRATION_BUFFERS_PER_ROUND * 1e9 / time);
+            }
+        } catch (PGPException | IOException e) {
+            LOGGER.warn("Hash algorithm: {} calibration failed - {}", algorithmName(algorithm), e.getMessage());
+        }
+
+        LOGGER.debug("Hash algorithm: {} throughput: {} MiB/s", algorithmName(algorithm), best);
+        return best;
+    }
+
+    private static PGPDigestCalculatorProvider buildDigestCalculatorProvider() {
+
+        PGPDigestCalculatorProvider jcaProvider;
+        try {
+            jcaProvider = new JcaPGPDigestCalculatorProviderBuilder().build();
+        } catch (PGPException e) {
+            throw new PGPSignerException(e);
+        }
+
+        PGPDigestCalculatorProvider bcProvider = new BcPGPDigestCalculatorProvider();
+
+        return algorithm -> {
+            try {
+                return jcaProvider.get(algorithm);
+            } catch (PGPException e) {
+                LOGGER.debug("Hash algorithm: {} not available in JCA - {}", algorithmName(algorithm),
+                        e.getMessage());
+                return bcProvider.get(algorithm);
+            }
+        };
+    }
+}
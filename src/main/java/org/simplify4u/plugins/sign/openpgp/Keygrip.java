@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.edec.EdECObjectIdentifiers;
+import org.bouncycastle.asn1.gnu.GNUObjectIdentifiers;
+import org.bouncycastle.asn1.x9.ECNamedCurveTable;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.bcpg.BCPGKey;
+import org.bouncycastle.bcpg.ECPublicBCPGKey;
+import org.bouncycastle.bcpg.Ed25519PublicBCPGKey;
+import org.bouncycastle.bcpg.PublicKeyAlgorithmTags;
+import org.bouncycastle.bcpg.RSAPublicBCPGKey;
+import org.bouncycastle.crypto.digests.SHA1Digest;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.util.BigIntegers;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * Keygrip - key identifier used by gpg-agent, calculated by libgcrypt from public key parameters,
+ * independent of OpenPGP key packet.
+ *
+ * @author Slawomir Jaranowski
+ */
+final class Keygrip {
+
+    private static final BigInteger ED25519_P = new BigInteger(
+            "7FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFED", 16);
+
+    // libgcrypt uses negated curve parameters a and b for keygrip
+    private static final BigInteger ED25519_A = BigInteger.ONE;
+    private static final BigInteger ED25519_B = new BigInteger(
+            "2DFC9311D490018C7338BF8688861767FF8FF5B2BEBE27548A14B235ECA6874A", 16);
+
+    private static final byte[] ED25519_G = Hex.decode("04"
+            + "216936D3CD6E53FEC0A4E231FDD6DC5C692CC7609525A7B2C9562D608F25D51A"
+            + "6666666666666666666666666666666666666666666666666666666666666658");
+
+    private static final BigInteger ED25519_N = new BigInteger(
+            "1000000000000000000000000000000014DEF9DEA2F79CD65812631A5CF5D3ED", 16);
+
+    private static final int EDDSA_POINT_PREFIX = 0x40;
+
+    private Keygrip() {
+    }
+
+    /**
+     * Calculate keygrip for given public key.
+     *
+     * @param publicKey a public key
+     *
+     * @return keygrip as upper case hex string
+     *
+     * @throws PGPException if key algorithm is not supported
+     */
+    // RSA_SIGN is deprecated, but keys with such algorithm still exist
+    @SuppressWarnings("deprecation")
+    static String calculate(PGPPublicKey publicKey) throws PGPException {
+
+        BCPGKey key = publicKey.getPublicKeyPacket().getKey();
+        byte[] data;
+
+        switch (publicKey.getAlgorithm()) {
+            case PublicKeyAlgorithmTags.RSA_GENERAL:
+            case PublicKeyAlgorithmTags.RSA_SIGN:
+                // only modulus in signed form is hashed for RSA
+                data = ((RSAPublicBCPGKey) key).getModulus().toByteArray();
+                break;
+            case PublicKeyAlgorithmTags.ECDSA:
+                data = ecKeyData((ECPublicBCPGKey) key);
+                break;
+            case PublicKeyAlgorithmTags.EDDSA_LEGACY:
+                data = ed25519KeyData((ECPublicBCPGKey) key);
+                break;
+            case PublicKeyAlgorithmTags.Ed25519:
+                data = ed25519KeyData(((Ed25519PublicBCPGKey) key).getKey());
+                break;
+            default:
+                throw new PGPException("Unsupported key algorithm for gpg-agent: " + publicKey.getAlgorithm());
+        }
+
+        SHA1Digest digest = new SHA1Digest();
+        digest.update(data, 0, data.length);
+        byte[] keygrip = new byte[digest.getDigestSize()];
+        digest.doFinal(keygrip, 0);
+        return Hex.toHexString(keygrip).toUpperCase(Locale.ROOT);
+    }
+
+    private static byte[] ecKeyData(ECPublicBCPGKey key) throws PGPException {
+
+        X9ECParameters curve = ECNamedCurveTable.getByOID(key.getCurveOID());
+        if (curve == null) {
+            throw new PGPException("Unsupported curve for gpg-agent: " + key.getCurveOID());
+        }
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        writeParam(data, 'p', BigIntegers.asUnsignedByteArray(curve.getCurve().getField().getCharacteristic()));
+        writeParam(data, 'a', BigIntegers.asUnsignedByteArray(curve.getCurve().getA().toBigInteger()));
+        writeParam(data, 'b', BigIntegers.asUnsignedByteArray(curve.getCurve().getB().toBigInteger()));
+        writeParam(data, 'g', curve.getG().getEncoded(false));
+        writeParam(data, 'n', BigIntegers.asUnsignedByteArray(curve.getN()));
+        writeParam(data, 'q', BigIntegers.asUnsignedByteArray(key.getEncodedPoint()));
+        return data.toByteArray();
+    }
+
+    private static byte[] ed25519KeyData(ECPublicBCPGKey key) throws PGPException {
+
+        ASN1ObjectIdentifier curveOid = key.getCurveOID();
+        if (!GNUObjectIdentifiers.Ed25519.equals(curveOid) && !EdECObjectIdentifiers.id_Ed25519.equals(curveOid)) {
+            throw new PGPException("Unsupported curve for gpg-agent: " + curveOid);
+        }
+
+        byte[] point = BigIntegers.asUnsignedByteArray(key.getEncodedPoint());
+        if (point.length > 0 && (point[0] & 0xff) == EDDSA_POINT_PREFIX) {
+            point = Arrays.copyOfRange(point, 1, point.length);
+        }
+        return ed25519KeyData(point);
+    }
+
+    private static byte[] ed25519KeyData(byte[] point) {
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        writeParam(data, 'p', BigIntegers.asUnsignedByteArray(ED25519_P));
+        writeParam(data, 'a', BigIntegers.asUnsignedByteArray(ED25519_A));
+        writeParam(data, 'b', BigIntegers.asUnsignedByteArray(ED25519_B));
+        writeParam(data, 'g', ED25519_G);
+        writeParam(data, 'n', BigIntegers.asUnsignedByteArray(ED25519_N));
+        writeParam(data, 'q', point);
+        return data.toByteArray();
+    }
+
+    /**
+     * Parameter as canonical S-expression: <code>(1:name len:value)</code>
+     */
+    private static void writeParam(ByteArrayOutputStream data, char name, byte[] value) {
+        byte[] prefix = ("(1:" + name + value.length + ":").getBytes(StandardCharsets.US_ASCII);
+        data.write(prefix, 0, prefix.length);
+        data.write(value, 0, value.length);
+        data.write(')');
+    }
+}
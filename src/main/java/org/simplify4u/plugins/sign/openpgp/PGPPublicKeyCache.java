@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.StreamSupport;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.operator.bc.BcKeyFingerprintCalculator;
+
+/**
+ * Cache of parsed public keys.
+ * <p>
+ * Key file is parsed once, next time it is read again only when file size or modification time was changed.
+ *
+ * @author Slawomir Jaranowski
+ */
+@Slf4j
+@Named
+@Singleton
+public class PGPPublicKeyCache {
+
+    private final Map<Path, CachedKeys> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Public keys from given file - armored or binary keyring.
+     *
+     * @param keyFile a file with public keys
+     *
+     * @return parsed public keys
+     *
+     * @throws PGPSignerException if file can not be read or parsed
+     */
+    public PGPPublicKeyRingCollection getPublicKeys(Path keyFile) {
+
+        try {
+            Path path = keyFile.toRealPath();
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+            return cache.compute(path, (p, cachedKeys) -> {
+                if (cachedKeys != null && cachedKeys.isValidFor(attributes)) {
+                    return cachedKeys;
+                }
+                return new CachedKeys(attributes.size(), attributes.lastModifiedTime().toMillis(), loadKeys(p));
+            }).getKeys();
+        } catch (IOException e) {
+            throw new PGPSignerException(e);
+        }
+    }
+
+    /**
+     * Find public key in given file.
+     *
+     * @param keyFile a file with public keys
+     * @param keyId   key id, if not provided first key from file is returned
+     *
+     * @return public key
+     *
+     * @throws PGPSignerException if key not found
+     */
+    public PGPPublicKey getPublicKey(Path keyFile, Long keyId) {
+
+        PGPPublicKeyRingCollection publicKeys = getPublicKeys(keyFile);
+
+        Optional<PGPPublicKey> publicKey;
+        if (keyId != null) {
+            publicKey = Optional.ofNullable(publicKeys.getPublicKey(keyId));
+        } else {
+            publicKey = StreamSupport.stream(publicKeys.spliterator(), false)
+                    .map(PGPPublicKeyRing::getPublicKey)
+                    .findFirst();
+        }
+
+        return publicKey.orElseThrow(() -> new PGPSignerException("Public key not found in: " + keyFile));
+    }
+
+    private static PGPPublicKeyRingCollection loadKeys(Path keyFile) {
+
+        LOGGER.debug("Load public keys from: {}", keyFile);
+
+        try (InputStream inputStream = PGPUtil.getDecoderStream(
+                new BufferedInputStream(Files.newInputStream(keyFile)))) {
+            return new PGPPublicKeyRingCollection(inputStream, new BcKeyFingerprintCalculator());
+        } catch (IOException | PGPException e) {
+            throw new PGPSignerException(e);
+        }
+    }
+
+    @Value
+    private static class CachedKeys {
+        long size;
+        long lastModified;
+        PGPPublicKeyRingCollection keys;
+
+        boolean isValidFor(BasicFileAttributes attributes) {
+            return size == attributes.size() && lastModified == attributes.lastModifiedTime().toMillis();
+        }
+    }
+}
@@ -15,11 +15,24 @@
  */
 package org.simplify4u.plugins.sign.openpgp;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.StreamSupport;
 import javax.inject.Named;
@@ -29,25 +42,34 @@ import static org.simplify4u.plugins.sign.openpgp.PGPSecretKeyUtils.getUserIDs;
 import static org.simplify4u.plugins.sign.openpgp.PGPSecretKeyUtils.keyIdDescription;
 import static org.simplify4u.plugins.sign.openpgp.PGPSecretKeyUtils.verifyKeyExpiration;
 
+import lombok.Setter;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.bouncycastle.bcpg.ArmoredOutputStream;
-import org.bouncycastle.bcpg.BCPGOutputStream;
-import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.bcpg.SignaturePacket;
+import org.bouncycastle.bcpg.SignatureSubpacket;
 import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
+import org.bouncycastle.bcpg.sig.IssuerFingerprint;
+import org.bouncycastle.bcpg.sig.SignatureCreationTime;
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPublicKey;
 import org.bouncycastle.openpgp.PGPSecretKey;
 import org.bouncycastle.openpgp.PGPSecretKeyRing;
 import org.bouncycastle.openpgp.PGPSecretKeyRingCollection;
 import org.bouncycastle.openpgp.PGPSignature;
 import org.bouncycastle.openpgp.PGPSignatureGenerator;
-import org.bouncycastle.openpgp.PGPSignatureSubpacketGenerator;
 import org.bouncycastle.openpgp.PGPSignatureSubpacketVector;
 import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.operator.PGPContentSigner;
+import org.bouncycastle.openpgp.operator.PGPContentSignerBuilder;
+import org.bouncycastle.openpgp.operator.PGPDigestCalculator;
 import org.bouncycastle.openpgp.operator.bc.BcKeyFingerprintCalculator;
-import org.bouncycastle.openpgp.operator.bc.BcPBESecretKeyDecryptorBuilder;
 import org.bouncycastle.openpgp.operator.bc.BcPGPContentSignerBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPBESecretKeyDecryptorBuilder;
 import org.bouncycastle.openpgp.operator.bc.BcPGPDigestCalculatorProvider;
+import org.bouncycastle.util.encoders.Hex;
+import org.simplify4u.plugins.sign.utils.AtomicFileWriter;
 
 /**
  * Signing data by PGP.
@@ -58,13 +80,54 @@ import org.bouncycastle.openpgp.operator.bc.BcPGPDigestCalculatorProvider;
 @Named
 public class PGPSigner {
 
+    /**
+     * Default hash algorithm.
+     */
+    public static final String DEFAULT_HASH_ALGORITHM = "SHA512";
+
     private PGPKeyInfo pgpKeyInfo;
 
     private PGPSecretKey secretKey;
     private PGPPrivateKey pgpPrivateKey;
-    private PGPSignatureSubpacketVector hashSubPackets;
     private PGPSecretKeyRing secretKeyRing;
 
+    private SignerBackend backend;
+    private PGPPublicKey publicKey;
+
+    private final List<PendingSignature> pendingSignatures = new ArrayList<>();
+
+    /**
+     * Verify each created signature with public key before it is written.
+     */
+    @Setter
+    private boolean selfVerify;
+
+    /**
+     * Collect digests and sign them in one batch on {@link #flush()}.
+     */
+    @Setter
+    private boolean batchMode;
+
+    /**
+     * Hash algorithm name or <code>auto</code>.
+     */
+    private String hashAlgorithmName = DEFAULT_HASH_ALGORITHM;
+
+    /**
+     * Selected hash algorithm, resolved on first signature.
+     */
+    private int hashAlgorithm;
+
+    /**
+     * Keys with hash algorithm preferences - signing key and its master key.
+     */
+    private List<PGPPublicKey> preferencesKeys = Collections.emptyList();
+
+    /**
+     * Writer of signatures - also used for other files created during signing, so all are synced together.
+     */
+    private final AtomicFileWriter fileWriter = new AtomicFileWriter();
+
     PGPSigner() {
         // empty one
     }
@@ -79,11 +142,19 @@ public class PGPSigner {
         this.pgpKeyInfo = keyInfo;
         try {
             loadKey();
-            prepareAdditionalSubPacket();
         } catch (IOException | PGPException e) {
             throw new PGPSignerException(e);
         }
 
+        PGPPublicKey keyPublicKey = secretKey.getPublicKey();
+        if (keyPublicKey.getVersion() == SignaturePacket.VERSION_4) {
+            setupBackend(new BcSignerBackend(pgpPrivateKey, keyPublicKey), keyPublicKey);
+        } else {
+            // signatures for other key versions are generated directly by Bouncy Castle
+            setupBackend(null, keyPublicKey);
+        }
+        preferencesKeys = Arrays.asList(secretKey.getPublicKey(), secretKeyRing.getPublicKey());
+
         if (LOGGER.isInfoEnabled()) {
             LOGGER.info("Loaded {}, uids: {}",
                     keyIdDescription(secretKey, secretKeyRing),
@@ -91,11 +162,53 @@ public class PGPSigner {
         }
     }
 
-    private void prepareAdditionalSubPacket() {
-        PGPSignatureSubpacketGenerator subPacketGenerator = new PGPSignatureSubpacketGenerator();
-        // PGP subpacket 33 - issuer key fingerprint
-        subPacketGenerator.setIssuerFingerprint(false, secretKey);
-        hashSubPackets = subPacketGenerator.generate();
+    /**
+     * Setup backend which will be used for signing instead of private key.
+     *
+     * @param signerBackend a signer backend
+     */
+    public void setBackend(SignerBackend signerBackend) {
+
+        PGPPublicKey backendPublicKey = signerBackend.getPublicKey();
+        if (backendPublicKey.getVersion() != SignaturePacket.VERSION_4) {
+            throw new PGPSignerException("Unsupported key version for signer backend: "
+                    + backendPublicKey.getVersion());
+        }
+
+        setupBackend(signerBackend, backendPublicKey);
+        preferencesKeys = Collections.singletonList(publicKey);
+        LOGGER.info("Signer backend: {} with key: 0x{}", signerBackend.getClass().getSimpleName(),
+                Hex.toHexString(publicKey.getFingerprint()).toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Backend signs digests calculated locally with version 4 signature trailer, without backend data are signed
+     * directly by Bouncy Castle.
+     */
+    private void setupBackend(SignerBackend signerBackend, PGPPublicKey signerPublicKey) {
+        this.backend = signerBackend;
+        this.publicKey = signerPublicKey;
+        this.hashAlgorithm = 0;
+    }
+
+    /**
+     * Setup hash algorithm used for signatures.
+     *
+     * @param hashAlgorithm algorithm name, like <code>SHA512</code>, or <code>auto</code>
+     *
+     * @throws PGPSignerException if algorithm is not supported
+     */
+    public synchronized void setHashAlgorithm(String hashAlgorithm) {
+        HashAlgorithmSelector.validate(hashAlgorithm);
+        this.hashAlgorithmName = hashAlgorithm;
+        this.hashAlgorithm = 0;
+    }
+
+    private synchronized int getHashAlgorithm() {
+        if (hashAlgorithm == 0) {
+            hashAlgorithm = HashAlgorithmSelector.select(hashAlgorithmName, preferencesKeys);
+        }
+        return hashAlgorithm;
     }
 
     /**
@@ -141,37 +254,416 @@ public class PGPSigner {
                 new BcPBESecretKeyDecryptorBuilder(new BcPGPDigestCalculatorProvider()).build(pgpKeyInfo.getPass()));
     }
 
+    /**
+     * Public part of key used for signing.
+     *
+     * @return the public key
+     */
+    public PGPPublicKey getPublicKey() {
+        return publicKey;
+    }
+
     /**
      * Generate PGP signature for a given input stream.
+     * <p>
+     * Data are hashed locally, only final digest is signed by backend. In batch mode signature is written
+     * by {@link #flush()}. Signatures for keys other than version 4 are always written immediately.
+     * <p>
+     * When self verification is enabled, signature is checked against digest calculated during signing,
+     * so data are read only once.
      *
      * @param inputStream stream with data to calculate signature
-     * @param outputPath  a destination of signature
+     * @param outputPath  a destination of armored signature
      *
-     * @throws PGPSignerException if some IO problems
+     * @throws PGPSignerException if some IO problems or self verification failed
      */
     public void sign(InputStream inputStream, Path outputPath) {
+        sign(inputStream, Collections.singletonMap(SignatureFormat.ARMORED, outputPath));
+    }
+
+    /**
+     * Generate PGP signature for a given input stream in many formats - signature is generated once
+     * and written to each output.
+     *
+     * @param inputStream stream with data to calculate signature
+     * @param outputs     destinations of signature for each format
+     *
+     * @throws PGPSignerException if some IO problems or self verification failed
+     */
+    public void sign(InputStream inputStream, Map<SignatureFormat, Path> outputs) {
+
+        if (backend == null) {
+            signDirectly(inputStream, new EnumMap<>(outputs));
+            return;
+        }
+
+        PendingSignature pendingSignature;
+        try {
+            pendingSignature = calculateDigest(inputStream, new EnumMap<>(outputs));
+        } catch (PGPException | IOException e) {
+            throw new PGPSignerException(e);
+        }
+
+        if (batchMode) {
+            synchronized (pendingSignatures) {
+                pendingSignatures.add(pendingSignature);
+            }
+        } else {
+            signPending(Collections.singletonList(pendingSignature));
+        }
+    }
+
+    /**
+     * Setup durability policy of written signatures.
+     *
+     * @param durability a durability policy
+     */
+    public void setDurability(AtomicFileWriter.Durability durability) {
+        fileWriter.setDurability(durability);
+    }
+
+    /**
+     * Writer used for signatures.
+     *
+     * @return the file writer
+     */
+    public AtomicFileWriter getFileWriter() {
+        return fileWriter;
+    }
+
+    /**
+     * Force written signatures to storage - according to durability policy.
+     *
+     * @throws PGPSignerException if some IO problems
+     */
+    public void sync() {
+        try {
+            fileWriter.sync();
+        } catch (IOException e) {
+            throw new PGPSignerException(e);
+        }
+    }
+
+    /**
+     * Sign all collected digests in one batch and write signatures.
+     *
+     * @throws PGPSignerException if some IO problems or self verification failed
+     */
+    public void flush() {
+
+        List<PendingSignature> toSign;
+        synchronized (pendingSignatures) {
+            toSign = new ArrayList<>(pendingSignatures);
+            pendingSignatures.clear();
+        }
+
+        if (!toSign.isEmpty()) {
+            LOGGER.debug("Sign batch of {} digests", toSign.size());
+            signPending(toSign);
+        }
+    }
+
+    /**
+     * Signature generated by Bouncy Castle from data - signature version follows key version.
+     */
+    private void signDirectly(InputStream inputStream, Map<SignatureFormat, Path> outputs) {
 
-        PGPSignatureGenerator sGen = new PGPSignatureGenerator(
-                new BcPGPContentSignerBuilder(secretKey.getPublicKey().getAlgorithm(), HashAlgorithmTags.SHA512));
+        DigestRecordingSignerBuilder signerBuilder = new DigestRecordingSignerBuilder(
+                new BcPGPContentSignerBuilder(publicKey.getAlgorithm(), getHashAlgorithm()));
 
         try {
-            sGen.init(PGPSignature.BINARY_DOCUMENT, pgpPrivateKey);
-            sGen.setHashedSubpackets(hashSubPackets);
+            PGPSignatureGenerator signatureGenerator = new PGPSignatureGenerator(signerBuilder, publicKey);
+            signatureGenerator.init(PGPSignature.BINARY_DOCUMENT, pgpPrivateKey);
+            signatureGenerator.setHashedSubpackets(PGPSignatureSubpacketVector.fromSubpackets(hashedSubpackets()));
 
             int len;
             byte[] buffer = new byte[8 * 1024];
             while ((len = inputStream.read(buffer)) >= 0) {
-                sGen.update(buffer, 0, len);
+                signatureGenerator.update(buffer, 0, len);
+            }
+
+            PGPSignature signature = signatureGenerator.generate();
+
+            if (selfVerify) {
+                verifySignature(signature, signerBuilder.getDigest(), outputs.values());
+            }
+
+            writeSignature(signature, outputs);
+        } catch (PGPException | IOException e) {
+            throw new PGPSignerException(e);
+        }
+    }
+
+    private SignatureSubpacket[] hashedSubpackets() {
+        return new SignatureSubpacket[]{
+                new SignatureCreationTime(true, new Date()),
+                // PGP subpacket 33 - issuer key fingerprint
+                new IssuerFingerprint(false, publicKey.getVersion(), publicKey.getFingerprint())
+        };
+    }
+
+    private PendingSignature calculateDigest(InputStream inputStream, Map<SignatureFormat, Path> outputs)
+            throws PGPException, IOException {
+
+        int algorithm = getHashAlgorithm();
+        PGPDigestCalculator digestCalculator = HashAlgorithmSelector.DIGEST_CALCULATOR_PROVIDER.get(algorithm);
+
+        SignatureSubpacket[] hashedSubpackets = hashedSubpackets();
+
+        try (OutputStream digestStream = digestCalculator.getOutputStream()) {
+            int len;
+            byte[] buffer = new byte[8 * 1024];
+            while ((len = inputStream.read(buffer)) >= 0) {
+                digestStream.write(buffer, 0, len);
+            }
+
+            digestStream.write(signatureTrailer(algorithm, hashedSubpackets));
+        }
+
+        return new PendingSignature(outputs, algorithm, hashedSubpackets, digestCalculator.getDigest());
+    }
+
+    /**
+     * Signature trailer for version 4 signature - RFC 4880, 5.2.4.
+     */
+    private byte[] signatureTrailer(int hashAlgorithm, SignatureSubpacket[] hashedSubpackets) throws IOException {
+
+        ByteArrayOutputStream subpackets = new ByteArrayOutputStream();
+        for (SignatureSubpacket subpacket : hashedSubpackets) {
+            subpacket.encode(subpackets);
+        }
+
+        ByteArrayOutputStream trailer = new ByteArrayOutputStream();
+        trailer.write(SignaturePacket.VERSION_4);
+        trailer.write(PGPSignature.BINARY_DOCUMENT);
+        trailer.write(publicKey.getAlgorithm());
+        trailer.write(hashAlgorithm);
+        trailer.write(subpackets.size() >> 8);
+        trailer.write(subpackets.size());
+        subpackets.writeTo(trailer);
+
+        int hashedLength = trailer.size();
+        trailer.write(SignaturePacket.VERSION_4);
+        trailer.write(0xff);
+        trailer.write(hashedLength >> 24);
+        trailer.write(hashedLength >> 16);
+        trailer.write(hashedLength >> 8);
+        trailer.write(hashedLength);
+
+        return trailer.toByteArray();
+    }
+
+    private void signPending(List<PendingSignature> toSign) {
+
+        try {
+            List<SignerBackend.SignRequest> requests = new ArrayList<>();
+            for (PendingSignature pendingSignature : toSign) {
+                requests.add(pendingSignature.toRequest());
+            }
+
+            List<byte[]> signatureValues = backend.sign(requests);
+            if (signatureValues.size() != toSign.size()) {
+                throw new PGPSignerException("Signer backend returned " + signatureValues.size()
+                        + " signatures for " + toSign.size() + " requests");
             }
 
-            Files.createDirectories(outputPath.getParent());
+            for (int i = 0; i < toSign.size(); i++) {
+                PendingSignature pendingSignature = toSign.get(i);
+                PGPSignature signature = pendingSignature.generate(signatureValues.get(i));
 
-            try (OutputStream out = Files.newOutputStream(outputPath);
-                 BCPGOutputStream bcpgOutputStream = new BCPGOutputStream(new ArmoredOutputStream(out))) {
-                sGen.generate().encode(bcpgOutputStream);
+                if (selfVerify) {
+                    verifySignature(signature, pendingSignature.getDigest(), pendingSignature.getOutputs().values());
+                }
+
+                writeSignature(signature, pendingSignature.getOutputs());
             }
         } catch (PGPException | IOException e) {
             throw new PGPSignerException(e);
         }
     }
+
+    /**
+     * Signature packet is encoded once, each output is written atomically by one channel write.
+     */
+    private void writeSignature(PGPSignature signature, Map<SignatureFormat, Path> outputs)
+            throws IOException {
+
+        byte[] binary = signature.getEncoded();
+        for (Map.Entry<SignatureFormat, Path> output : outputs.entrySet()) {
+            byte[] content = output.getKey() == SignatureFormat.ARMORED ? armored(binary) : binary;
+            fileWriter.write(output.getValue(), content);
+        }
+    }
+
+    private static byte[] armored(byte[] binary) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(binary.length * 2);
+        try (ArmoredOutputStream armoredOutputStream = new ArmoredOutputStream(out)) {
+            armoredOutputStream.write(binary);
+        }
+        return out.toByteArray();
+    }
+
+    private void verifySignature(PGPSignature signature, byte[] digest, Collection<Path> outputPaths)
+            throws PGPException {
+
+        if (!DigestSignatures.verify(publicKey, signature.getHashAlgorithm(), digest, signature.getSignature())) {
+            throw new PGPSignerException("Self verification failed for signature: " + outputPaths);
+        }
+        LOGGER.debug("Self verification passed for signature: {}", outputPaths);
+    }
+
+    /**
+     * Digest waiting for signature.
+     */
+    @Value
+    private class PendingSignature {
+        Map<SignatureFormat, Path> outputs;
+        int hashAlgorithm;
+        SignatureSubpacket[] hashedSubpackets;
+        byte[] digest;
+
+        SignerBackend.SignRequest toRequest() throws IOException {
+            ByteArrayOutputStream subpackets = new ByteArrayOutputStream();
+            for (SignatureSubpacket subpacket : hashedSubpackets) {
+                subpacket.encode(subpackets);
+            }
+            return new SignerBackend.SignRequest(hashAlgorithm, digest, subpackets.toByteArray());
+        }
+
+        /**
+         * Build signature packet by Bouncy Castle, signature value and digest are provided by backend.
+         */
+        PGPSignature generate(byte[] signatureValue) throws PGPException {
+
+            PGPSignatureGenerator signatureGenerator = new PGPSignatureGenerator(
+                    new PrecomputedSignerBuilder(hashAlgorithm, digest, signatureValue), publicKey);
+            signatureGenerator.init(PGPSignature.BINARY_DOCUMENT,
+                    new PGPPrivateKey(publicKey.getKeyID(), publicKey.getPublicKeyPacket(), null));
+            signatureGenerator.setHashedSubpackets(PGPSignatureSubpacketVector.fromSubpackets(hashedSubpackets));
+            return signatureGenerator.generate();
+        }
+    }
+
+    /**
+     * Content signer which returns already calculated signature.
+     */
+    @Value
+    private class PrecomputedSignerBuilder implements PGPContentSignerBuilder {
+
+        int hashAlgorithm;
+        byte[] digest;
+        byte[] signatureValue;
+
+        @Override
+        public PGPContentSigner build(int signatureType, PGPPrivateKey privateKey) {
+
+            return new PGPContentSigner() {
+                @Override
+                public OutputStream getOutputStream() {
+                    // trailer is already included in digest
+                    return new OutputStream() {
+                        @Override
+                        public void write(int b) {
+                            // ignore
+                        }
+                    };
+                }
+
+                @Override
+                public byte[] getSignature() {
+                    return signatureValue;
+                }
+
+                @Override
+                public byte[] getDigest() {
+                    return digest;
+                }
+
+                @Override
+                public int getType() {
+                    return signatureType;
+                }
+
+                @Override
+                public int getHashAlgorithm() {
+                    return hashAlgorithm;
+                }
+
+                @Override
+                public int getKeyAlgorithm() {
+                    return publicKey.getAlgorithm();
+                }
+
+                @Override
+                public long getKeyID() {
+                    return publicKey.getKeyID();
+                }
+            };
+        }
+    }
+
+    /**
+     * Content signer builder which remembers digest of generated signature - needed for self verification.
+     */
+    private static class DigestRecordingSignerBuilder implements PGPContentSignerBuilder {
+
+        private final PGPContentSignerBuilder delegate;
+        private byte[] digest;
+
+        DigestRecordingSignerBuilder(PGPContentSignerBuilder delegate) {
+            this.delegate = delegate;
+        }
+
+        byte[] getDigest() {
+            return digest;
+        }
+
+        @Override
+        public PGPContentSigner build(int signatureType, PGPPrivateKey privateKey) throws PGPException {
+
+            PGPContentSigner contentSigner = delegate.build(signatureType, privateKey);
+
+            return new PGPContentSigner() {
+                @Override
+                public OutputStream getOutputStream() {
+                    return contentSigner.getOutputStream();
+                }
+
+                @Override
+                public byte[] getSignature() {
+                    return contentSigner.getSignature();
+                }
+
+                @Override
+                public byte[] getDigest() {
+                    // digest can be calculated only once
+                    if (digest == null) {
+                        digest = contentSigner.getDigest();
+                    }
+                    return digest;
+                }
+
+                @Override
+                public int getType() {
+                    return contentSigner.getType();
+                }
+
+                @Override
+                public int getHashAlgorithm() {
+                    return contentSigner.getHashAlgorithm();
+                }
+
+                @Override
+                public int getKeyAlgorithm() {
+                    return contentSigner.getKeyAlgorithm();
+                }
+
+                @Override
+                public long getKeyID() {
+                    return contentSigner.getKeyID();
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongFunction;
+import javax.inject.Named;
+
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPSignatureList;
+import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.bc.BcPGPObjectFactory;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentVerifierBuilderProvider;
+
+/**
+ * Verifying data by PGP.
+ *
+ * @author Slawomir Jaranowski
+ */
+@Named
+public class PGPVerifier {
+
+    /**
+     * Verify detached signature for a given input stream.
+     *
+     * @param inputStream     stream with signed data
+     * @param signatureStream stream with signature - armored or binary
+     * @param publicKeys      keys used for verification
+     *
+     * @throws PGPSignerException if signature is not valid or some IO problems
+     */
+    public void verify(InputStream inputStream, InputStream signatureStream, PGPPublicKeyRingCollection publicKeys) {
+        verify(inputStream, signatureStream, publicKeys::getPublicKey);
+    }
+
+    /**
+     * Verify detached signature for a given input stream, signature must be made by given key.
+     *
+     * @param inputStream     stream with signed data
+     * @param signatureStream stream with signature - armored or binary
+     * @param publicKey       key used for verification
+     *
+     * @throws PGPSignerException if signature is not valid or some IO problems
+     */
+    public void verify(InputStream inputStream, InputStream signatureStream, PGPPublicKey publicKey) {
+        verify(inputStream, signatureStream, keyId -> keyId == publicKey.getKeyID() ? publicKey : null);
+    }
+
+    private static void verify(InputStream inputStream, InputStream signatureStream,
+            LongFunction<PGPPublicKey> publicKeyLookup) {
+
+        try {
+            PGPSignature signature = readSignature(signatureStream);
+
+            PGPPublicKey publicKey = publicKeyLookup.apply(signature.getKeyID());
+            if (publicKey == null) {
+                throw new PGPSignerException(String.format("Public key 0x%016X not found", signature.getKeyID()));
+            }
+
+            signature.init(new BcPGPContentVerifierBuilderProvider(), publicKey);
+
+            int len;
+            byte[] buffer = new byte[8 * 1024];
+            while ((len = inputStream.read(buffer)) >= 0) {
+                signature.update(buffer, 0, len);
+            }
+
+            if (!signature.verify()) {
+                throw new PGPSignerException(String.format("Invalid signature by key 0x%016X",
+                        signature.getKeyID()));
+            }
+        } catch (PGPException | IOException e) {
+            throw new PGPSignerException(e);
+        }
+    }
+
+    private static PGPSignature readSignature(InputStream signatureStream) throws IOException {
+
+        Object object = new BcPGPObjectFactory(PGPUtil.getDecoderStream(signatureStream)).nextObject();
+
+        if (!(object instanceof PGPSignatureList) || ((PGPSignatureList) object).isEmpty()) {
+            throw new PGPSignerException("Signature not found");
+        }
+
+        return ((PGPSignatureList) object).get(0);
+    }
+}
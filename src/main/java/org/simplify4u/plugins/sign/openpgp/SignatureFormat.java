@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Output format of detached signature.
+ *
+ * @author Slawomir Jaranowski
+ */
+public enum SignatureFormat {
+
+    /**
+     * ASCII armored signature.
+     */
+    ARMORED(".asc"),
+
+    /**
+     * Binary signature - about 35% smaller, without Base64 and CRC24 calculation.
+     */
+    BINARY(".sig");
+
+    private static final String BOTH = "both";
+
+    private final String extension;
+
+    SignatureFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Extension of signature file, added to extension of signed file.
+     *
+     * @return extension with leading dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Parse configuration value: <code>armored</code>, <code>binary</code> or <code>both</code>.
+     * Empty value means default - <code>armored</code>.
+     *
+     * @param value a configuration value, can be null
+     *
+     * @return signature formats
+     *
+     * @throws PGPSignerException if value is not known
+     */
+    public static List<SignatureFormat> parse(String value) {
+
+        if (value == null || value.trim().isEmpty()) {
+            return Collections.singletonList(ARMORED);
+        }
+
+        String format = value.trim().toUpperCase(Locale.ROOT);
+        if (BOTH.equalsIgnoreCase(format)) {
+            return Arrays.asList(ARMORED, BINARY);
+        }
+
+        return Arrays.stream(values())
+                .filter(f -> f.name().equals(format))
+                .findFirst()
+                .map(Collections::singletonList)
+                .orElseThrow(() -> new PGPSignerException("Unknown signature format: " + value
+                        + ", expected: armored, binary or both"));
+    }
+
+    /**
+     * Find format of signature file by its name.
+     *
+     * @param fileName a name of file
+     *
+     * @return signature format or empty if file is not a signature
+     */
+    public static Optional<SignatureFormat> forFileName(String fileName) {
+        return Arrays.stream(values())
+                .filter(f -> fileName.endsWith(f.extension))
+                .findFirst();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.io.IOException;
+import java.util.List;
+
+import lombok.Value;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+
+/**
+ * Backend which creates signature value for already calculated digest.
+ * <p>
+ * Data are hashed locally by {@link PGPSigner}, backend receives only final digest of data and signature trailer,
+ * together with hashed subpackets. Many digests can be signed in one call.
+ *
+ * @author Slawomir Jaranowski
+ */
+public interface SignerBackend {
+
+    /**
+     * Public part of key used by backend.
+     *
+     * @return the public key
+     */
+    PGPPublicKey getPublicKey();
+
+    /**
+     * Sign batch of digests.
+     *
+     * @param requests digests to sign
+     *
+     * @return signature values in the same order as requests, encoded like
+     *         {@link org.bouncycastle.openpgp.operator.PGPContentSigner#getSignature()}
+     *
+     * @throws IOException  if communication with backend failed
+     * @throws PGPException if signature can not be created
+     */
+    List<byte[]> sign(List<SignRequest> requests) throws IOException, PGPException;
+
+    /**
+     * Request for signing a digest.
+     */
+    @Value
+    class SignRequest {
+
+        /**
+         * algorithm used to calculate digest
+         */
+        int hashAlgorithm;
+
+        /**
+         * final digest of data and signature trailer
+         */
+        byte[] digest;
+
+        /**
+         * encoded hashed subpackets - included in digest
+         */
+        byte[] hashedSubpackets;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.io.IOException;
+import java.net.URI;
+
+import org.bouncycastle.openpgp.PGPPublicKey;
+
+/**
+ * Factory of {@link SignerBackend} - implementations are registered as named components,
+ * name is used as a scheme of backend location.
+ *
+ * @author Slawomir Jaranowski
+ */
+public interface SignerBackendFactory {
+
+    /**
+     * Create backend for given location.
+     *
+     * @param location  a backend location
+     * @param publicKey public part of key used by backend
+     *
+     * @return new backend
+     *
+     * @throws IOException if backend can not be created
+     */
+    SignerBackend create(URI location, PGPPublicKey publicKey) throws IOException;
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * Simple backend for signing service available by socket - whole batch is signed in one round trip.
+ * <p>
+ * Protocol is line based, binary data are hex encoded. Request:
+ * <pre>
+ * SIGN keyFingerprint count
+ * hashAlgorithm digest hashedSubpackets
+ * ...
+ * </pre>
+ * Response:
+ * <pre>
+ * OK count
+ * signature
+ * ...
+ * </pre>
+ * or <code>ERR message</code> in case of error.
+ *
+ * @author Slawomir Jaranowski
+ */
+@Slf4j
+class SocketSignerBackend implements SignerBackend {
+
+    private static final int CONNECT_TIMEOUT = 10_000;
+    private static final int READ_TIMEOUT = 300_000;
+
+    private final InetSocketAddress address;
+    private final PGPPublicKey publicKey;
+
+    SocketSignerBackend(InetSocketAddress address, PGPPublicKey publicKey) {
+        this.address = address;
+        this.publicKey = publicKey;
+    }
+
+    @Override
+    public PGPPublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    @Override
+    public List<byte[]> sign(List<SignRequest> requests) throws IOException, PGPException {
+
+        LOGGER.debug("Send {} digests to: {}", requests.size(), address);
+
+        try (Socket socket = new Socket()) {
+            socket.connect(address, CONNECT_TIMEOUT);
+            socket.setSoTimeout(READ_TIMEOUT);
+
+            BufferedWriter writer = new BufferedWriter(
+                    new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+
+            writer.write("SIGN " + Hex.toHexString(publicKey.getFingerprint()) + ' ' + requests.size() + '\n');
+            for (SignRequest request : requests) {
+                writer.write(request.getHashAlgorithm() + " " + Hex.toHexString(request.getDigest()) + ' '
+                        + Hex.toHexString(request.getHashedSubpackets()) + '\n');
+            }
+            writer.flush();
+
+            String status = reader.readLine();
+            if (status == null || !status.equals("OK " + requests.size())) {
+                throw new PGPException("Signer backend " + address + " error: " + status);
+            }
+
+            List<byte[]> result = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i++) {
+                String line = reader.readLine();
+                if (line == null) {
+                    throw new PGPException("Signer backend " + address + " - unexpected end of response");
+                }
+                result.add(Hex.decode(line.trim()));
+            }
+            return result;
+        }
+    }
+}
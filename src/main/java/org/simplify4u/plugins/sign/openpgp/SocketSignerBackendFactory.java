@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.bouncycastle.openpgp.PGPPublicKey;
+
+/**
+ * Factory for backend available by socket, location: <code>socket://host:port</code>.
+ *
+ * @author Slawomir Jaranowski
+ */
+@Singleton
+@Named(SocketSignerBackendFactory.NAME)
+public class SocketSignerBackendFactory implements SignerBackendFactory {
+
+    /**
+     * Backend location scheme.
+     */
+    public static final String NAME = "socket";
+
+    @Override
+    public SignerBackend create(URI location, PGPPublicKey publicKey) {
+
+        if (location.getHost() == null || location.getPort() < 0) {
+            throw new PGPSignerException("Signer backend location must be in form: socket://host:port");
+        }
+
+        return new SocketSignerBackend(new InetSocketAddress(location.getHost(), location.getPort()), publicKey);
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Atomic file writes - content is written to temporary sibling file which is next moved into place,
+ * so reader never sees partial file and killed build doesn't leave truncated one.
+ * <p>
+ * With {@link Durability#BATCH} temporary files are moved into place by {@link #sync()}, after content of all
+ * of them is forced to storage, next each directory is forced once. So file which is in place has durable content,
+ * and storage is synced once for whole batch, not after each write.
+ */
+@Slf4j
+public class AtomicFileWriter {
+
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /**
+     * Durability policy of written files.
+     */
+    public enum Durability {
+
+        /**
+         * Files are not forced to storage - only atomic move is done.
+         */
+        NONE,
+
+        /**
+         * Files are moved into place and forced to storage with their directories once, by {@link #sync()}.
+         */
+        BATCH;
+
+        /**
+         * Parse configuration value: <code>none</code> or <code>batch</code>.
+         *
+         * @param value a configuration value
+         *
+         * @return durability policy
+         *
+         * @throws IllegalArgumentException if value is not known
+         */
+        public static Durability parse(String value) {
+            String durability = value.trim().toUpperCase(Locale.ROOT);
+            return Arrays.stream(values())
+                    .filter(d -> d.name().equals(durability))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown durability: " + value
+                            + ", expected: none or batch"));
+        }
+    }
+
+    /**
+     * Writer of file content.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+
+        /**
+         * Write content to stream.
+         *
+         * @param outputStream a destination stream
+         *
+         * @throws IOException if some IO problems
+         */
+        void write(OutputStream outputStream) throws IOException;
+    }
+
+    private Durability durability = Durability.NONE;
+
+    /**
+     * Temporary files waiting for {@link #sync()} - by target file.
+     */
+    private final Map<Path, Path> pendingFiles = new LinkedHashMap<>();
+
+    /**
+     * Setup durability policy.
+     *
+     * @param durability a durability policy
+     */
+    public synchronized void setDurability(Durability durability) {
+        this.durability = durability;
+    }
+
+    /**
+     * Check if file is temporary file of writer - such file can be left by killed build.
+     *
+     * @param fileName a name of file
+     *
+     * @return true for temporary file
+     */
+    public static boolean isTemporaryFile(String fileName) {
+        return fileName.startsWith(".") && fileName.endsWith(TEMP_FILE_SUFFIX);
+    }
+
+    /**
+     * Write content to file - by one channel write. With {@link Durability#BATCH} file is in place after
+     * {@link #sync()}.
+     *
+     * @param target  a destination file
+     * @param content a content of file
+     *
+     * @throws IOException if some IO problems
+     */
+    public void write(Path target, byte[] content) throws IOException {
+
+        Path tempFile = createTempFile(target);
+        boolean pending = false;
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            pending = commit(tempFile, target);
+        } finally {
+            if (!pending) {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    /**
+     * Write content to file. With {@link Durability#BATCH} file is in place after {@link #sync()}.
+     *
+     * @param target        a destination file
+     * @param contentWriter a writer of file content
+     *
+     * @throws IOException if some IO problems
+     */
+    public void write(Path target, ContentWriter contentWriter) throws IOException {
+
+        Path tempFile = createTempFile(target);
+        boolean pending = false;
+        try {
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                contentWriter.write(outputStream);
+            }
+            pending = commit(tempFile, target);
+        } finally {
+            if (!pending) {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    /**
+     * Copy file - source can be also file written by this writer which waits for {@link #sync()}.
+     *
+     * @param source a source file
+     * @param target a destination file
+     *
+     * @throws IOException if some IO problems
+     */
+    public void copy(Path source, Path target) throws IOException {
+
+        Path sourceFile;
+        synchronized (this) {
+            sourceFile = pendingFiles.getOrDefault(source.toAbsolutePath(), source);
+        }
+
+        write(target, outputStream -> Files.copy(sourceFile, outputStream));
+    }
+
+    /**
+     * Move files written since last call into place - according to durability policy.
+     * <p>
+     * Content of all files is forced to storage in parallel, next files are moved into place
+     * and each directory is forced once.
+     *
+     * @throws IOException if some IO problems
+     */
+    public void sync() throws IOException {
+
+        Map<Path, Path> files;
+        synchronized (this) {
+            files = new LinkedHashMap<>(pendingFiles);
+            pendingFiles.clear();
+        }
+
+        if (files.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Callable<Path>> tasks = new ArrayList<>();
+            files.values().forEach(tempFile -> tasks.add(() -> forceFile(tempFile)));
+            ParallelTasks.run(tasks, Runtime.getRuntime().availableProcessors());
+
+            Set<Path> directories = new LinkedHashSet<>();
+            for (Map.Entry<Path, Path> file : files.entrySet()) {
+                moveIntoPlace(file.getValue(), file.getKey());
+                directories.add(file.getKey().getParent());
+            }
+
+            directories.forEach(AtomicFileWriter::forceDirectory);
+            LOGGER.debug("Synced {} files in {} directories", files.size(), directories.size());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            // not moved files after failure
+            for (Path tempFile : files.values()) {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    /**
+     * Temporary file in the same directory as target - so can be moved atomically.
+     * Permissions are default for new file - like for target written directly.
+     */
+    private static Path createTempFile(Path target) throws IOException {
+
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        String tempName = "." + target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong())
+                + TEMP_FILE_SUFFIX;
+        return Files.createFile(directory.resolve(tempName));
+    }
+
+    /**
+     * Move temporary file into place or keep it for {@link #sync()}.
+     *
+     * @return true if file waits for sync
+     */
+    private boolean commit(Path tempFile, Path target) throws IOException {
+
+        synchronized (this) {
+            if (durability == Durability.BATCH) {
+                Path previous = pendingFiles.put(target.toAbsolutePath(), tempFile);
+                if (previous != null) {
+                    Files.deleteIfExists(previous);
+                }
+                return true;
+            }
+        }
+
+        moveIntoPlace(tempFile, target);
+        return false;
+    }
+
+    private static void moveIntoPlace(Path tempFile, Path target) throws IOException {
+        try {
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Path forceFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        return file;
+    }
+
+    /**
+     * New directory entries are durable after directory is forced - not supported on all platforms, eg. Windows.
+     */
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            LOGGER.debug("Directory: {} can't be forced - {}", directory, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * Manifest with size and hash of many files - one signature of manifest covers all of them.
+ * <p>
+ * Files are hashed in parallel. Each file is described by one line: <code>hash size name</code>.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ChecksumManifest {
+
+    /**
+     * Hash algorithm used for files.
+     */
+    public static final String ALGORITHM = "SHA-512";
+
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Description of one file in manifest.
+     */
+    @Value
+    public static class Entry {
+        String name;
+        long size;
+        byte[] hash;
+    }
+
+    List<Entry> entries;
+
+    /**
+     * Calculate manifest for given files.
+     *
+     * @param files   files with names used in manifest, entries are in the same order
+     * @param threads number of threads used for hashing
+     *
+     * @return manifest for files
+     */
+    public static ChecksumManifest calculate(Map<String, Path> files, int threads) {
+
+        List<Callable<Entry>> tasks = new ArrayList<>();
+        files.forEach((name, file) -> tasks.add(() -> entry(name, file)));
+
+        return new ChecksumManifest(ParallelTasks.run(tasks, threads));
+    }
+
+    /**
+     * Write manifest as text.
+     *
+     * @param outputStream a destination stream
+     *
+     * @throws IOException if some IO problems
+     */
+    public void write(OutputStream outputStream) throws IOException {
+
+        // stream is closed by caller
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write("version: " + VERSION + '\n');
+        writer.write("algorithm: " + ALGORITHM + '\n');
+        writer.write("files: " + entries.size() + '\n');
+        for (Entry entry : entries) {
+            writer.write(Hex.toHexString(entry.getHash()) + ' ' + entry.getSize() + ' ' + entry.getName() + '\n');
+        }
+        writer.flush();
+    }
+
+    private static Entry entry(String name, Path file) throws IOException {
+
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            int len;
+            while ((len = inputStream.read(buffer)) >= 0) {
+                digest.update(buffer, 0, len);
+                size += len;
+            }
+        }
+        return new Entry(name, size, digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
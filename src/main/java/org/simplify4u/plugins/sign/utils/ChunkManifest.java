@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * Manifest with hashes of fixed-size chunks of file and root of Merkle tree built from them.
+ * <p>
+ * Chunks are hashed in parallel, so large files can be hashed - and verified - using all cores.
+ * Consumers can also verify only downloaded part of file.
+ * <p>
+ * Tree is built like in RFC 6962: leaf hash is <code>SHA-512(0x00 || chunk)</code>, node hash is
+ * <code>SHA-512(0x01 || left || right)</code>, node without pair is promoted to next level unchanged.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ChunkManifest {
+
+    /**
+     * Hash algorithm used for chunks and tree nodes.
+     */
+    public static final String ALGORITHM = "SHA-512";
+
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+
+    long size;
+    long chunkSize;
+    List<byte[]> chunkHashes;
+    byte[] root;
+
+    /**
+     * Calculate manifest for given file.
+     *
+     * @param file      a file
+     * @param chunkSize size of chunk in bytes
+     * @param threads   number of threads used for hashing
+     *
+     * @return manifest for file
+     */
+    public static ChunkManifest calculate(Path file, long chunkSize, int threads) {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            long size = channel.size();
+            long chunks = Math.max(1, (size + chunkSize - 1) / chunkSize);
+
+            List<Callable<byte[]>> tasks = new ArrayList<>();
+            for (long i = 0; i < chunks; i++) {
+                long position = i * chunkSize;
+                long length = Math.min(chunkSize, size - position);
+                tasks.add(() -> chunkHash(channel, position, length));
+            }
+
+            List<byte[]> chunkHashes = ParallelTasks.run(tasks, threads);
+            return new ChunkManifest(size, chunkSize, chunkHashes, merkleRoot(chunkHashes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write manifest as text.
+     *
+     * @param outputStream a destination stream
+     *
+     * @throws IOException if some IO problems
+     */
+    public void write(OutputStream outputStream) throws IOException {
+
+        // stream is closed by caller
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write("version: " + VERSION + '\n');
+        writer.write("algorithm: " + ALGORITHM + '\n');
+        writer.write("size: " + size + '\n');
+        writer.write("chunkSize: " + chunkSize + '\n');
+        writer.write("chunks: " + chunkHashes.size() + '\n');
+        writer.write("root: " + Hex.toHexString(root) + '\n');
+        for (byte[] chunkHash : chunkHashes) {
+            writer.write(Hex.toHexString(chunkHash));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private static byte[] chunkHash(FileChannel channel, long position, long length) throws IOException {
+
+        MessageDigest digest = newDigest();
+        digest.update(LEAF_PREFIX);
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(length, 1)));
+        long offset = 0;
+
+        while (offset < length) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), length - offset));
+            int len = channel.read(buffer, position + offset);
+            if (len < 0) {
+                throw new IOException("Unexpected end of file at position: " + (position + offset));
+            }
+            digest.update(buffer.array(), 0, len);
+            offset += len;
+        }
+        return digest.digest();
+    }
+
+    private static byte[] merkleRoot(List<byte[]> leafs) {
+
+        List<byte[]> level = leafs;
+        while (level.size() > 1) {
+            List<byte[]> nextLevel = new ArrayList<>();
+            for (int i = 0; i < level.size(); i += 2) {
+                if (i + 1 < level.size()) {
+                    MessageDigest digest = newDigest();
+                    digest.update(NODE_PREFIX);
+                    digest.update(level.get(i));
+                    digest.update(level.get(i + 1));
+                    nextLevel.add(digest.digest());
+                } else {
+                    nextLevel.add(level.get(i));
+                }
+            }
+            level = nextLevel;
+        }
+        return level.get(0);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Detect files with identical content.
+ * <p>
+ * Content is compared in steps, each next one only for files which are still candidates:
+ * <ol>
+ *     <li>canonical path - the same physical file, nothing is read</li>
+ *     <li>file size - nothing is read</li>
+ *     <li>fingerprint of file beginning and end</li>
+ *     <li>SHA-256 of whole content</li>
+ * </ol>
+ */
+@UtilityClass
+public class IdenticalFiles {
+
+    private static final int SAMPLE_SIZE = 4 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Group items by content of connected files. Order of items is preserved in groups.
+     *
+     * @param items      items to group
+     * @param fileGetter a function returning file for item
+     * @param <T>        type of items
+     *
+     * @return groups of items with identical files content
+     */
+    public <T> Collection<List<T>> group(Collection<T> items, Function<T, File> fileGetter) {
+
+        Map<File, List<T>> byPath = groupBy(items, item -> canonicalFile(fileGetter.apply(item)));
+        Map<Long, List<File>> bySize = groupBy(byPath.keySet(), File::length);
+
+        List<List<T>> result = new ArrayList<>();
+        for (List<File> sameSize : bySize.values()) {
+            for (List<File> sameContent : groupByContent(sameSize)) {
+                List<T> group = new ArrayList<>();
+                sameContent.forEach(file -> group.addAll(byPath.get(file)));
+                result.add(group);
+            }
+        }
+        return result;
+    }
+
+    private Collection<List<File>> groupByContent(List<File> files) {
+
+        if (files.size() == 1) {
+            return Collections.singletonList(files);
+        }
+
+        List<List<File>> result = new ArrayList<>();
+        for (List<File> sameSample : groupBy(files, IdenticalFiles::sampleFingerprint).values()) {
+            if (sameSample.size() == 1) {
+                result.add(sameSample);
+            } else {
+                result.addAll(groupBy(sameSample, IdenticalFiles::contentDigest).values());
+            }
+        }
+        return result;
+    }
+
+    private <K, T> Map<K, List<T>> groupBy(Collection<T> items, Function<T, K> keyFunction) {
+        Map<K, List<T>> result = new LinkedHashMap<>();
+        items.forEach(item -> result.computeIfAbsent(keyFunction.apply(item), k -> new ArrayList<>()).add(item));
+        return result;
+    }
+
+    private File canonicalFile(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long sampleFingerprint(File file) {
+
+        CRC32 crc32 = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(SAMPLE_SIZE);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            updateCrc(crc32, channel, buffer, 0);
+            if (size > SAMPLE_SIZE) {
+                updateCrc(crc32, channel, buffer, Math.max(SAMPLE_SIZE, size - SAMPLE_SIZE));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return crc32.getValue();
+    }
+
+    private void updateCrc(CRC32 crc32, FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+            // read until buffer is full or end of file
+        }
+        buffer.flip();
+        crc32.update(buffer.array(), 0, buffer.limit());
+    }
+
+    private String contentDigest(File file) {
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int len;
+            while ((len = inputStream.read(buffer)) >= 0) {
+                digest.update(buffer, 0, len);
+            }
+            return new BigInteger(1, digest.digest()).toString(16);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
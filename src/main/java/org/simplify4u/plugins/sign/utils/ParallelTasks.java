@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Run independent tasks, like hashing of files or its chunks, in parallel.
+ */
+@UtilityClass
+public class ParallelTasks {
+
+    /**
+     * Run tasks in fixed thread pool and wait for all results. Rest of tasks are cancelled after first failure.
+     *
+     * @param tasks   tasks to run
+     * @param threads maximum number of threads
+     * @param <T>     type of task result
+     *
+     * @return results in order of tasks
+     *
+     * @throws UncheckedIOException  if task failed by IO problems
+     * @throws IllegalStateException if task failed by other reason or waiting was interrupted
+     */
+    public <T> List<T> run(List<? extends Callable<T>> tasks, int threads) {
+
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, tasks.size())));
+
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                futures.add(executorService.submit(task));
+            }
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw (UncheckedIOException) e.getCause();
+            }
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) e.getCause());
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.model.Build;
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.simplify4u.plugins.sign.openpgp.PGPSigner;
+import org.simplify4u.plugins.sign.openpgp.SignatureFormat;
+import org.simplify4u.plugins.sign.utils.AtomicFileWriter;
+
+@ExtendWith(MockitoExtension.class)
+class ArtifactSigner36Test {
+
+    @Mock
+    private MavenProject project;
+
+    @Mock
+    private PGPSigner pgpSigner;
+
+    @InjectMocks
+    private ArtifactSigner36 artifactSigner;
+
+    @Test
+    void signatureInEachFormatShouldBeReturned() {
+
+        // given
+        DefaultArtifact artifact = new DefaultArtifact("groupId", "artifactId", "1.0.0", null, "jar", "sources",
+                new DefaultArtifactHandler("jar"));
+        artifact.setFile(new File("pom.xml"));
+
+        Build build = new Build();
+        build.setDirectory("target");
+        when(project.getBuild()).thenReturn(build);
+
+        artifactSigner.setSignatureFormats(Arrays.asList(SignatureFormat.ARMORED, SignatureFormat.BINARY));
+
+        // when
+        List<SignResult> signResults = artifactSigner.signArtifact(artifact);
+
+        // then
+        assertThat(signResults).containsExactly(
+                SignResult.builder()
+                        .classifier("sources")
+                        .extension("jar.asc")
+                        .file(Paths.get("target", "artifactId-1.0.0-sources.jar.asc").toFile())
+                        .build(),
+                SignResult.builder()
+                        .classifier("sources")
+                        .extension("jar.sig")
+                        .file(Paths.get("target", "artifactId-1.0.0-sources.jar.sig").toFile())
+                        .build());
+
+        Map<SignatureFormat, Path> outputs = new EnumMap<>(SignatureFormat.class);
+        outputs.put(SignatureFormat.ARMORED, Paths.get("target", "artifactId-1.0.0-sources.jar.asc"));
+        outputs.put(SignatureFormat.BINARY, Paths.get("target", "artifactId-1.0.0-sources.jar.sig"));
+        verify(pgpSigner).sign(any(), eq(outputs));
+    }
+
+    @Test
+    void signatureShouldBeCopiedForIdenticalArtifactsAfterFlush(@TempDir Path tempDir) throws IOException {
+
+        // given
+        DefaultArtifact artifact1 = new DefaultArtifact("groupId", "artifactId", "1.0.0", null, "jar", null,
+                new DefaultArtifactHandler("jar"));
+        artifact1.setFile(new File("pom.xml"));
+        DefaultArtifact artifact2 = new DefaultArtifact("groupId", "artifactId", "1.0.0", null, "jar", "copy",
+                new DefaultArtifactHandler("jar"));
+        artifact2.setFile(new File("pom.xml"));
+
+        Build build = new Build();
+        build.setDirectory(tempDir.toString());
+        when(project.getBuild()).thenReturn(build);
+
+        Path signature = tempDir.resolve("artifactId-1.0.0.jar.asc");
+        Path signatureCopy = tempDir.resolve("artifactId-1.0.0-copy.jar.asc");
+
+        // signature is written in batch
+        doAnswer(invocation -> Files.write(signature, new byte[]{1, 2, 3})).when(pgpSigner).flush();
+        when(pgpSigner.getFileWriter()).thenReturn(new AtomicFileWriter());
+
+        // when
+        List<SignResult> signResults = artifactSigner.signIdenticalArtifacts(Arrays.asList(artifact1, artifact2));
+
+        // then
+        assertThat(signResults).extracting(SignResult::getFile)
+                .containsExactly(signature.toFile(), signatureCopy.toFile());
+        assertThat(signatureCopy).doesNotExist();
+        verify(pgpSigner, never()).flush();
+
+        // when
+        artifactSigner.flush();
+
+        // then
+        assertThat(signatureCopy).hasBinaryContent(new byte[]{1, 2, 3});
+        verify(pgpSigner).flush();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign;
+
+import javax.inject.Provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.maven.rtinfo.RuntimeInformation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ArtifactSignerFactoryTest {
+
+    @Mock
+    private RuntimeInformation runtimeInformation;
+
+    @Mock
+    private Provider<ArtifactSigner36> artifactSigner36;
+
+    @InjectMocks
+    private ArtifactSignerFactory artifactSignerFactory;
+
+    private final ArtifactSigner36 signer36 = new ArtifactSigner36();
+
+    @Test
+    void signerForMaven3() {
+
+        // given
+        when(runtimeInformation.isMavenVersion(ArtifactSignerFactory.MAVEN_TRANSFORMER_VERSIONS)).thenReturn(false);
+        when(artifactSigner36.get()).thenReturn(signer36);
+
+        // when
+        ArtifactSigner artifactSigner = artifactSignerFactory.getArtifactSigner();
+
+        // then
+        assertThat(artifactSigner).isSameAs(signer36);
+    }
+
+    @Test
+    void signerForMaven4() {
+
+        // given
+        when(runtimeInformation.isMavenVersion(ArtifactSignerFactory.MAVEN_TRANSFORMER_VERSIONS)).thenReturn(true);
+        when(runtimeInformation.getMavenVersion()).thenReturn("4.0.0");
+        when(artifactSigner36.get()).thenReturn(signer36);
+
+        // when
+        ArtifactSigner artifactSigner = artifactSignerFactory.getArtifactSigner();
+
+        // then
+        assertThat(artifactSigner).isSameAs(signer36);
+        verify(runtimeInformation).getMavenVersion();
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.deployment.DeployRequest;
+import org.eclipse.aether.installation.InstallRequest;
+import org.eclipse.aether.spi.artifact.generator.ArtifactGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.simplify4u.plugins.sign.openpgp.PGPKeyInfo;
+import org.simplify4u.plugins.sign.openpgp.PGPSigner;
+import org.simplify4u.plugins.sign.openpgp.SignatureFormat;
+
+@ExtendWith(MockitoExtension.class)
+class SignArtifactGeneratorFactoryTest {
+
+    @Mock
+    private Provider<KeyInfoFactory> keyInfoFactoryProvider;
+
+    @Mock
+    private KeyInfoFactory keyInfoFactory;
+
+    @Mock
+    private Provider<PGPSigner> pgpSignerProvider;
+
+    @Mock
+    private PGPSigner pgpSigner;
+
+    @Mock
+    private RepositorySystemSession session;
+
+    @InjectMocks
+    private SignArtifactGeneratorFactory generatorFactory;
+
+    @TempDir
+    private Path tempDir;
+
+    private final Map<String, Object> configProperties = new HashMap<>();
+
+    @BeforeEach
+    void setup() {
+        lenient().when(session.getConfigProperties()).thenReturn(configProperties);
+    }
+
+    @Test
+    void nothingGeneratedForInstall() {
+
+        // when
+        ArtifactGenerator generator = generatorFactory.newInstance(session, new InstallRequest());
+
+        // then
+        assertThat(generator).isNull();
+        verifyNoInteractions(keyInfoFactoryProvider, pgpSignerProvider);
+    }
+
+    @Test
+    void skipDeployWithoutKey() {
+
+        // given
+        when(keyInfoFactoryProvider.get()).thenReturn(keyInfoFactory);
+        when(keyInfoFactory.buildKeyInfo(any())).thenReturn(PGPKeyInfo.builder().build());
+
+        // when
+        ArtifactGenerator generator = generatorFactory.newInstance(session, new DeployRequest());
+
+        // then
+        assertThat(generator).isNull();
+        verifyNoInteractions(pgpSignerProvider);
+    }
+
+    @Test
+    void signOnlyDeployedArtifacts() throws Exception {
+
+        // given
+        configProperties.put(SignArtifactGeneratorFactory.CONFIG_KEY_ID, "ABCDEF");
+
+        when(keyInfoFactoryProvider.get()).thenReturn(keyInfoFactory);
+        when(keyInfoFactory.buildKeyInfo(KeyInfoFactory.KeyInfoRequest.builder()
+                .id("ABCDEF")
+                .file(new File("~/.m2/sign-key.asc"))
+                .build()))
+                .thenReturn(PGPKeyInfo.builder().key(new byte[]{1, 2, 3}).build());
+
+        when(pgpSignerProvider.get()).thenReturn(pgpSigner);
+        List<Path> signatures = new ArrayList<>();
+        doAnswer(invocation -> {
+            Path target = invocation.<Map<SignatureFormat, Path>>getArgument(1).get(SignatureFormat.ARMORED);
+            signatures.add(Files.write(target, new byte[]{1}));
+            return null;
+        }).when(pgpSigner).sign(any(), anyMap());
+
+        Artifact jar = artifact("test.jar", "jar");
+        Artifact jarMd5 = artifact("test.jar.md5", "jar.md5");
+        Artifact pom = artifact("test.pom", "pom");
+        Artifact pomAsc = artifact("test.pom.asc", "pom.asc");
+
+        DeployRequest deployRequest = new DeployRequest();
+        deployRequest.setArtifacts(new ArrayList<>(Arrays.asList(jar, jarMd5, pom, pomAsc)));
+
+        // when
+        Collection<? extends Artifact> generated;
+        try (ArtifactGenerator generator = generatorFactory.newInstance(session, deployRequest)) {
+            generated = generator.generate(Collections.emptyList());
+
+            // then
+            assertThat(generated).hasSize(1);
+            Artifact signature = generated.iterator().next();
+            assertThat(signature.getExtension()).isEqualTo("jar.asc");
+            assertThat(signature.getArtifactId()).isEqualTo(jar.getArtifactId());
+            assertThat(signature.getFile()).exists();
+        }
+
+        // temporary signatures are removed after deploy
+        assertThat(signatures).hasSize(1);
+        assertThat(signatures.get(0)).doesNotExist();
+    }
+
+    @Test
+    void artifactsWithTheSameFileNameHaveSeparateSignatures() throws Exception {
+
+        // given
+        configProperties.put(SignArtifactGeneratorFactory.CONFIG_KEY_ID, "ABCDEF");
+
+        when(keyInfoFactoryProvider.get()).thenReturn(keyInfoFactory);
+        when(keyInfoFactory.buildKeyInfo(any())).thenReturn(PGPKeyInfo.builder().key(new byte[]{1, 2, 3}).build());
+
+        when(pgpSignerProvider.get()).thenReturn(pgpSigner);
+        doAnswer(invocation -> {
+            Path target = invocation.<Map<SignatureFormat, Path>>getArgument(1).get(SignatureFormat.ARMORED);
+            Files.write(target, new byte[]{(byte) target.getFileName().toString().length()});
+            return null;
+        }).when(pgpSigner).sign(any(), anyMap());
+
+        Path module1 = Files.createDirectories(tempDir.resolve("module1"));
+        Path module2 = Files.createDirectories(tempDir.resolve("module2"));
+        Artifact pom1 = new DefaultArtifact("groupId", "module1", null, "pom", "1.0.0", null,
+                Files.write(module1.resolve("pom.xml"), new byte[]{1}).toFile());
+        Artifact pom2 = new DefaultArtifact("groupId", "module-2", null, "pom", "1.0.0", null,
+                Files.write(module2.resolve("pom.xml"), new byte[]{2}).toFile());
+
+        DeployRequest deployRequest = new DeployRequest();
+        deployRequest.setArtifacts(new ArrayList<>(Arrays.asList(pom1, pom2)));
+
+        // when
+        try (ArtifactGenerator generator = generatorFactory.newInstance(session, deployRequest)) {
+            List<? extends Artifact> generated = new ArrayList<>(generator.generate(Collections.emptyList()));
+
+            // then
+            assertThat(generated).hasSize(2);
+            assertThat(generated.get(0).getArtifactId()).isEqualTo("module1");
+            assertThat(generated.get(1).getArtifactId()).isEqualTo("module-2");
+            assertThat(generated.get(0).getFile()).isNotEqualTo(generated.get(1).getFile());
+            assertThat(generated.get(0).getFile()).exists();
+            assertThat(generated.get(1).getFile()).exists();
+        }
+    }
+
+    private Artifact artifact(String fileName, String extension) throws Exception {
+        Path file = Files.write(tempDir.resolve(fileName), new byte[]{1, 2, 3});
+        return new DefaultArtifact("groupId", "artifactId", null, extension, "1.0.0", null, file.toFile());
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.simplify4u.plugins.sign.openpgp.PGPKeyInfo;
+import org.simplify4u.plugins.sign.openpgp.PGPSigner;
+import org.simplify4u.plugins.sign.openpgp.PGPSignerException;
+import org.simplify4u.plugins.sign.openpgp.PGPVerifier;
+import org.simplify4u.plugins.sign.openpgp.SignatureFormat;
+
+@ExtendWith(MockitoExtension.class)
+class SignDirectoryMojoTest {
+
+    @Mock
+    private KeyInfoFactory keyInfoFactory;
+
+    @Mock
+    private PGPSigner pgpSigner;
+
+    @Mock
+    private PGPVerifier pgpVerifier;
+
+    @Mock
+    private PGPPublicKey publicKey;
+
+    @InjectMocks
+    private SignDirectoryMojo mojo;
+
+    @TempDir
+    private Path directory;
+
+    private Path jar;
+    private Path pom;
+
+    @BeforeEach
+    void setup() throws IOException {
+        Path artifactDir = Files.createDirectories(directory.resolve("group/artifact/1.0.0"));
+        jar = Files.write(artifactDir.resolve("artifact-1.0.0.jar"), new byte[]{1, 2, 3});
+        pom = Files.write(artifactDir.resolve("artifact-1.0.0.pom"), new byte[]{4, 5, 6});
+        Files.write(artifactDir.resolve("artifact-1.0.0.jar.sha1"), new byte[]{1});
+        Files.write(directory.resolve("group/artifact/maven-metadata.xml"), new byte[]{1});
+
+        mojo.setDirectory(directory.toFile());
+        mojo.setThreads(2);
+        mojo.setExcludes(Arrays.asList(SignDirectoryMojo.DEFAULT_EXCLUDES.split(",")));
+
+        when(keyInfoFactory.buildKeyInfo(any())).thenReturn(PGPKeyInfo.builder().key(new byte[]{1, 2, 3}).build());
+        when(pgpSigner.getPublicKey()).thenReturn(publicKey);
+        when(publicKey.getFingerprint()).thenReturn(new byte[]{1, 2, 3, 4});
+    }
+
+    @Test
+    void allFilesShouldBeSigned() {
+
+        // given
+        givenSignerWritesSignature();
+
+        // when
+        mojo.execute();
+
+        // then
+        verify(pgpSigner).sign(any(), eq(signatures(jar)));
+        verify(pgpSigner).sign(any(), eq(signatures(pom)));
+        assertThat(directory.resolve("group/artifact/1.0.0/artifact-1.0.0.jar.sha1.asc")).doesNotExist();
+        assertThat(directory.resolve("group/artifact/maven-metadata.xml.asc")).doesNotExist();
+        assertThat(directory.resolve(".sign-journal")).doesNotExist();
+    }
+
+    @Test
+    void validSignatureShouldNotBeReplaced() throws IOException {
+
+        // given
+        givenSignerWritesSignature();
+        Files.write(signature(jar), new byte[]{1});
+
+        // when
+        mojo.execute();
+
+        // then
+        verify(pgpVerifier).verify(any(), any(), eq(publicKey));
+        verify(pgpSigner, never()).sign(any(), eq(signatures(jar)));
+        verify(pgpSigner).sign(any(), eq(signatures(pom)));
+    }
+
+    @Test
+    void interruptedSigningShouldBeContinued() {
+
+        // given
+        doAnswer(invocation -> {
+            Path target = invocation.<Map<SignatureFormat, Path>>getArgument(1).get(SignatureFormat.ARMORED);
+            if (target.equals(signature(pom))) {
+                throw new IllegalStateException("sign error");
+            }
+            return Files.write(target, new byte[]{1});
+        }).when(pgpSigner).sign(any(), anyMap());
+
+        assertThatThrownBy(() -> mojo.execute())
+                .isExactlyInstanceOf(SignMojoException.class)
+                .hasMessageStartingWith("Signing failed for 1 file(s), restart to continue: ")
+                .hasMessageEndingWith("artifact-1.0.0.pom - sign error");
+
+        assertThat(directory.resolve(".sign-journal")).exists();
+
+        givenSignerWritesSignature();
+
+        // when
+        mojo.execute();
+
+        // then - jar is signed only once, signature is not verified
+        verify(pgpSigner).sign(any(), eq(signatures(jar)));
+        verify(pgpSigner, times(2)).sign(any(), eq(signatures(pom)));
+        verify(pgpVerifier, never()).verify(any(), any(), eq(publicKey));
+        assertThat(directory.resolve(".sign-journal")).doesNotExist();
+    }
+
+    @Test
+    void signingKilledBeforeSyncShouldNotKeepOldSignature() throws IOException {
+
+        // given - signature made by old key, new one is pending until sync
+        Files.write(signature(jar), new byte[]{9});
+        doThrow(PGPSignerException.class).when(pgpVerifier).verify(any(), any(), eq(publicKey));
+        doThrow(PGPSignerException.class).when(pgpSigner).sync();
+
+        assertThatThrownBy(() -> mojo.execute())
+                .isInstanceOf(PGPSignerException.class);
+
+        assertThat(directory.resolve(".sign-journal")).hasContent("key:01020304");
+
+        doNothing().when(pgpSigner).sync();
+        givenSignerWritesSignature();
+
+        // when
+        mojo.execute();
+
+        // then - old signature is verified once again and replaced
+        verify(pgpVerifier, times(2)).verify(any(), any(), eq(publicKey));
+        verify(pgpSigner, times(2)).sign(any(), eq(signatures(jar)));
+        assertThat(signature(jar)).hasBinaryContent(new byte[]{1});
+        assertThat(directory.resolve(".sign-journal")).doesNotExist();
+    }
+
+    private void givenSignerWritesSignature() {
+        doAnswer(invocation -> Files.write(
+                invocation.<Map<SignatureFormat, Path>>getArgument(1).get(SignatureFormat.ARMORED), new byte[]{1}))
+                .when(pgpSigner).sign(any(), anyMap());
+    }
+
+    private static Path signature(Path file) {
+        return file.resolveSibling(file.getFileName() + ".asc");
+    }
+
+    private static Map<SignatureFormat, Path> signatures(Path file) {
+        return Collections.singletonMap(SignatureFormat.ARMORED, signature(file));
+    }
+}
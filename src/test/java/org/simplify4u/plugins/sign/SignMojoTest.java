@@ -16,11 +16,22 @@
 package org.simplify4u.plugins.sign;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -29,15 +40,19 @@ import static org.mockito.Mockito.when;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DefaultArtifact;
 import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.model.Build;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.simplify4u.plugins.sign.openpgp.PGPKeyInfo;
+import org.simplify4u.plugins.sign.openpgp.SignerBackendFactory;
+import org.simplify4u.plugins.sign.utils.AtomicFileWriter;
 import org.slf4j.Logger;
 
 @ExtendWith(MockitoExtension.class)
@@ -52,15 +67,24 @@ class SignMojoTest {
     @Mock
     private ArtifactSigner artifactSigner;
 
+    @Mock
+    private ArtifactSignerFactory artifactSignerFactory;
+
     @Mock
     private KeyInfoFactory keyInfoFactory;
 
+    @Mock
+    private Map<String, SignerBackendFactory> signerBackendFactories;
+
     @Spy
     private Logger logger;
 
     @InjectMocks
     private SignMojo mojo;
 
+    @TempDir
+    private Path tempDir;
+
     @Test
     void skipExecution() {
 
@@ -71,7 +95,7 @@ class SignMojoTest {
         mojo.execute();
 
         // then
-        verifyNoInteractions(artifactSigner, keyInfoFactory, project);
+        verifyNoInteractions(artifactSignerFactory, artifactSigner, keyInfoFactory, project);
     }
 
     @Test
@@ -85,7 +109,7 @@ class SignMojoTest {
         mojo.execute();
 
         //then
-        verifyNoInteractions(artifactSigner, project);
+        verifyNoInteractions(artifactSignerFactory, artifactSigner, project);
     }
 
     @Test
@@ -99,6 +123,22 @@ class SignMojoTest {
                 .isExactlyInstanceOf(SignMojoException.class)
                 .hasMessage("Required key for signing not found");
 
+        verifyNoInteractions(artifactSignerFactory, artifactSigner, project);
+    }
+
+    @Test
+    void unknownSignerBackendShouldBreakExecution() {
+
+        // given
+        mojo.setSignerBackend("unknown://localhost:9999");
+        when(keyInfoFactory.buildKeyInfo(any())).thenReturn(PGPKeyInfo.builder().build());
+        when(artifactSignerFactory.getArtifactSigner()).thenReturn(artifactSigner);
+
+        // when - then
+        assertThatThrownBy(() -> mojo.execute())
+                .isExactlyInstanceOf(SignMojoException.class)
+                .hasMessageStartingWith("Unknown signer backend: unknown");
+
         verifyNoInteractions(artifactSigner, project);
     }
 
@@ -117,6 +157,7 @@ class SignMojoTest {
 
         when(keyInfoFactory.buildKeyInfo(any())).thenReturn(PGPKeyInfo.builder().key(new byte[]{1, 2, 3}).build());
 
+        when(artifactSignerFactory.getArtifactSigner()).thenReturn(artifactSigner);
         when(artifactSigner.signArtifact(any())).thenReturn(Collections.singletonList(SignResult.builder().build()));
 
         mojo.execute();
@@ -144,6 +185,7 @@ class SignMojoTest {
 
         when(keyInfoFactory.buildKeyInfo(any())).thenReturn(PGPKeyInfo.builder().key(new byte[]{1, 2, 3}).build());
 
+        when(artifactSignerFactory.getArtifactSigner()).thenReturn(artifactSigner);
         when(artifactSigner.signArtifact(any())).thenReturn(Collections.singletonList(SignResult.builder().build()));
 
         mojo.setExcludes(Collections.singletonList("**/*.md5"));
@@ -153,6 +195,193 @@ class SignMojoTest {
         verify(projectHelper).attachArtifact(eq(project), any(), any(), any());
     }
 
+    @Test
+    void identicalArtifactsShouldBeSignedOnce() {
+
+        DefaultArtifact artifact = new DefaultArtifact("groupId", "artifactId", "1.0.0", null, "pom", null,
+                new DefaultArtifactHandler("pom"));
+
+        when(project.getGroupId()).thenReturn(artifact.getGroupId());
+        when(project.getArtifactId()).thenReturn(artifact.getArtifactId());
+        when(project.getVersion()).thenReturn(artifact.getVersion());
+        when(project.getArtifact()).thenReturn(artifact);
+        when(project.getFile()).thenReturn(new File("pom.xml"));
+        when(project.getBasedir()).thenReturn(new File("."));
+
+        Artifact artifact2 = aArtifactWithFile("artifact2", "./pom.xml");
+
+        when(project.getAttachedArtifacts()).thenReturn(Collections.singletonList(artifact2));
+
+        when(keyInfoFactory.buildKeyInfo(any())).thenReturn(PGPKeyInfo.builder().key(new byte[]{1, 2, 3}).build());
+
+        when(artifactSignerFactory.getArtifactSigner()).thenReturn(artifactSigner);
+        when(artifactSigner.signIdenticalArtifacts(any()))
+                .thenReturn(Arrays.asList(SignResult.builder().build(), SignResult.builder().build()));
+
+        mojo.execute();
+
+        verify(artifactSigner).signIdenticalArtifacts(argThat(artifacts -> artifacts.size() == 2
+                && artifacts.contains(artifact2)));
+        verify(artifactSigner, never()).signArtifact(any());
+        verify(projectHelper, times(2)).attachArtifact(eq(project), any(), any(), any());
+    }
+
+    @Test
+    void chunkManifestShouldBeCreatedForBigArtifacts() throws IOException {
+
+        DefaultArtifact artifact = new DefaultArtifact("groupId", "artifactId", "1.0.0", null, "pom", null,
+                new DefaultArtifactHandler("pom"));
+
+        when(project.getGroupId()).thenReturn(artifact.getGroupId());
+        when(project.getArtifactId()).thenReturn(artifact.getArtifactId());
+        when(project.getVersion()).thenReturn(artifact.getVersion());
+        when(project.getArtifact()).thenReturn(artifact);
+        when(project.getFile()).thenReturn(Files.write(tempDir.resolve("pom.xml"), new byte[]{1}).toFile());
+        when(project.getBasedir()).thenReturn(tempDir.toFile());
+
+        Artifact bigArtifact = aArtifactWithFile("artifact2",
+                Files.write(tempDir.resolve("big.dat"), new byte[1024 * 1024 + 1]).toString());
+
+        when(project.getAttachedArtifacts()).thenReturn(Collections.singletonList(bigArtifact));
+
+        when(keyInfoFactory.buildKeyInfo(any())).thenReturn(PGPKeyInfo.builder().key(new byte[]{1, 2, 3}).build());
+
+        when(artifactSignerFactory.getArtifactSigner()).thenReturn(artifactSigner);
+        when(artifactSigner.signArtifact(any())).thenReturn(Collections.singletonList(SignResult.builder().build()));
+        when(artifactSigner.signChunkManifest(any(), anyLong(), anyInt()))
+                .thenReturn(Arrays.asList(SignResult.builder().build(), SignResult.builder().build()));
+
+        mojo.setChunkManifest(true);
+        mojo.setChunkSize(1);
+        mojo.execute();
+
+        verify(artifactSigner).signChunkManifest(eq(bigArtifact), eq(1024L * 1024L), anyInt());
+        verify(artifactSigner, times(1)).signChunkManifest(any(), anyLong(), anyInt());
+        verify(projectHelper, times(4)).attachArtifact(eq(project), any(), any(), any());
+    }
+
+    @Test
+    void checksumManifestInsteadOfArtifactSignatures() throws IOException {
+
+        // given
+        DefaultArtifact artifact = new DefaultArtifact("groupId", "artifactId", "1.0.0", null, "pom", null,
+                new DefaultArtifactHandler("pom"));
+
+        when(project.getGroupId()).thenReturn(artifact.getGroupId());
+        when(project.getArtifactId()).thenReturn(artifact.getArtifactId());
+        when(project.getVersion()).thenReturn(artifact.getVersion());
+        when(project.getArtifact()).thenReturn(artifact);
+        when(project.getFile()).thenReturn(Files.write(tempDir.resolve("pom.xml"), new byte[]{1}).toFile());
+        when(project.getBasedir()).thenReturn(tempDir.toFile());
+
+        Artifact artifact1 = aArtifactWithFile("artifact1",
+                Files.write(tempDir.resolve("test1.dat"), new byte[]{2}).toString());
+        Artifact artifact2 = aArtifactWithFile("artifact2",
+                Files.write(tempDir.resolve("test2.dat"), new byte[]{3}).toString());
+
+        when(project.getAttachedArtifacts()).thenReturn(Arrays.asList(artifact1, artifact2));
+
+        when(keyInfoFactory.buildKeyInfo(any())).thenReturn(PGPKeyInfo.builder().key(new byte[]{1, 2, 3}).build());
+
+        when(artifactSignerFactory.getArtifactSigner()).thenReturn(artifactSigner);
+        when(artifactSigner.signChecksumManifest(any(), anyInt()))
+                .thenReturn(Arrays.asList(SignResult.builder().build(), SignResult.builder().build()));
+
+        mojo.setChecksumManifest(true);
+        mojo.setArtifactSignatures(false);
+
+        // when
+        mojo.execute();
+
+        // then
+        verify(artifactSigner).signChecksumManifest(argThat(artifacts -> artifacts.size() == 3
+                && artifacts.contains(artifact1) && artifacts.contains(artifact2)), anyInt());
+        verify(artifactSigner, never()).signArtifact(any());
+        verify(artifactSigner, never()).signIdenticalArtifacts(any());
+        verify(projectHelper, times(2)).attachArtifact(eq(project), any(), any(), any());
+    }
+
+    @Test
+    void disabledArtifactSignaturesWithoutChecksumManifestShouldBreakExecution() {
+
+        // given
+        mojo.setArtifactSignatures(false);
+
+        // when - then
+        assertThatThrownBy(() -> mojo.execute())
+                .isExactlyInstanceOf(SignMojoException.class)
+                .hasMessage("artifactSignatures can be disabled only with checksumManifest");
+
+        verifyNoInteractions(artifactSignerFactory, artifactSigner, project);
+    }
+
+    @Test
+    void invalidChunkSizeShouldBreakExecution() {
+
+        // given
+        mojo.setChunkManifest(true);
+        mojo.setChunkSize(0);
+
+        // when - then
+        assertThatThrownBy(() -> mojo.execute())
+                .isExactlyInstanceOf(SignMojoException.class)
+                .hasMessage("chunkSize must be at least 1, but was: 0");
+
+        verifyNoInteractions(artifactSignerFactory, artifactSigner, project);
+    }
+
+    @Test
+    void incrementalModeReusesSignaturesOfNotChangedArtifacts() throws IOException {
+
+        // given
+        DefaultArtifact artifact = new DefaultArtifact("groupId", "artifactId", "1.0.0", null, "pom", null,
+                new DefaultArtifactHandler("pom"));
+
+        Build build = new Build();
+        build.setDirectory(tempDir.resolve("target").toString());
+
+        Path pomFile = Files.write(tempDir.resolve("pom.xml"), new byte[]{1});
+        Path signatureFile = tempDir.resolve("target/artifactId-1.0.0.pom.asc");
+        SignResult signResult = SignResult.builder().extension("pom.asc").file(signatureFile.toFile()).build();
+
+        when(project.getGroupId()).thenReturn(artifact.getGroupId());
+        when(project.getArtifactId()).thenReturn(artifact.getArtifactId());
+        when(project.getVersion()).thenReturn(artifact.getVersion());
+        when(project.getArtifact()).thenReturn(artifact);
+        when(project.getFile()).thenReturn(pomFile.toFile());
+        when(project.getBasedir()).thenReturn(tempDir.toFile());
+        when(project.getBuild()).thenReturn(build);
+
+        when(keyInfoFactory.buildKeyInfo(any())).thenReturn(PGPKeyInfo.builder().key(new byte[]{1, 2, 3}).build());
+
+        when(artifactSignerFactory.getArtifactSigner()).thenReturn(artifactSigner);
+        when(artifactSigner.getKeyFingerprint()).thenReturn("ABCDEF");
+        when(artifactSigner.getFileWriter()).thenReturn(new AtomicFileWriter());
+        when(artifactSigner.expectedSignatures(any())).thenReturn(Optional.of(Collections.singletonList(signResult)));
+        when(artifactSigner.signArtifact(any())).then(invocation -> {
+            Files.createDirectories(signatureFile.getParent());
+            Files.write(signatureFile, new byte[]{1, 2});
+            return Collections.singletonList(signResult);
+        });
+
+        mojo.setIncremental(true);
+
+        // when - first build signs, second one reuses signature
+        mojo.execute();
+        mojo.execute();
+
+        // then
+        verify(artifactSigner, times(1)).signArtifact(any());
+        verify(projectHelper, times(2)).attachArtifact(project, "pom.asc", null, signatureFile.toFile());
+
+        // when - artifact changed
+        Files.write(pomFile, new byte[]{1, 2});
+        mojo.execute();
+
+        // then
+        verify(artifactSigner, times(2)).signArtifact(any());
+    }
+
     private Artifact aArtifactWithFile(String artifactId, String fileName) {
         DefaultArtifact artifact = new DefaultArtifact("groupId", artifactId, "1.0.0", null, "pom", null,
                 new DefaultArtifactHandler("pom"));
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.simplify4u.plugins.sign.utils.AtomicFileWriter;
+
+class SignStateTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void changedSignatureIsDetected() throws IOException {
+
+        // given
+        Path stateFile = tempDir.resolve("target/state");
+        Path artifact = Files.write(tempDir.resolve("test.jar"), new byte[]{1});
+        Path signature = Files.write(tempDir.resolve("test.jar.asc"), new byte[]{1});
+        List<Path> signatures = Collections.singletonList(signature);
+
+        SignState signState = SignState.load(stateFile, "ABCDEF", "config");
+        signState.signed(artifact, attributes(artifact), signatures);
+        signState.save(stateFile, new AtomicFileWriter());
+
+        // when
+        SignState loadedState = SignState.load(stateFile, "ABCDEF", "config");
+
+        // then
+        assertThat(loadedState.isUnchanged(artifact, attributes(artifact), signatures)).isTrue();
+
+        Files.write(signature, new byte[0]);
+        assertThat(loadedState.isUnchanged(artifact, attributes(artifact), signatures)).isFalse();
+
+        Files.delete(signature);
+        assertThat(loadedState.isUnchanged(artifact, attributes(artifact), signatures)).isFalse();
+    }
+
+    @Test
+    void stateForOtherKeyIsDiscarded() throws IOException {
+
+        // given
+        Path stateFile = tempDir.resolve("state");
+        Path artifact = Files.write(tempDir.resolve("test.jar"), new byte[]{1});
+        List<Path> signatures = Collections.singletonList(Files.write(tempDir.resolve("test.jar.asc"), new byte[]{1}));
+
+        SignState signState = SignState.load(stateFile, "ABCDEF", "config");
+        signState.signed(artifact, attributes(artifact), signatures);
+        signState.save(stateFile, new AtomicFileWriter());
+
+        // when
+        SignState otherKeyState = SignState.load(stateFile, "123456", "config");
+        SignState otherConfigState = SignState.load(stateFile, "ABCDEF", "other config");
+
+        // then
+        assertThat(otherKeyState.isUnchanged(artifact, attributes(artifact), signatures)).isFalse();
+        assertThat(otherConfigState.isUnchanged(artifact, attributes(artifact), signatures)).isFalse();
+    }
+
+    private static BasicFileAttributes attributes(Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.project.MavenProject;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.simplify4u.plugins.sign.openpgp.PGPPublicKeyCache;
+import org.simplify4u.plugins.sign.openpgp.PGPVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class VerifySignaturesMojoTest {
+
+    @Mock
+    private MavenProject project;
+
+    @Mock
+    private PGPPublicKeyCache publicKeyCache;
+
+    @Mock
+    private PGPVerifier pgpVerifier;
+
+    @InjectMocks
+    private VerifySignaturesMojo mojo;
+
+    @TempDir
+    private Path tempDir;
+
+    private final PGPPublicKeyRingCollection publicKeys = new PGPPublicKeyRingCollection(Collections.emptyList());
+
+    @BeforeEach
+    void setup() {
+        mojo.setPublicKeyFile(new File("public-keys.asc"));
+        mojo.setThreads(2);
+        mojo.setExcludes(Arrays.asList(SignMojo.DEFAULT_EXCLUDES.split(",")));
+    }
+
+    @Test
+    void skipExecution() {
+
+        // given
+        mojo.setSkip(true);
+
+        // when
+        mojo.execute();
+
+        // then
+        verifyNoInteractions(project, publicKeyCache, pgpVerifier);
+    }
+
+    @Test
+    void allSignaturesShouldBeVerified() throws IOException {
+
+        // given
+        Artifact jar = artifact("jar", null, "artifactId-1.0.0.jar");
+        givenProject(jar,
+                artifact("pom.asc", null, "artifactId-1.0.0.pom.asc"),
+                artifact("jar.asc", null, "artifactId-1.0.0.jar.asc"));
+
+        // when
+        mojo.execute();
+
+        // then
+        verify(pgpVerifier, times(2)).verify(any(), any(), eq(publicKeys));
+    }
+
+    @Test
+    void missingSignatureShouldBreakExecution() throws IOException {
+
+        // given
+        Artifact jar = artifact("jar", null, "artifactId-1.0.0.jar");
+        givenProject(jar,
+                artifact("pom.asc", null, "artifactId-1.0.0.pom.asc"),
+                artifact("jar", "sources", "artifactId-1.0.0-sources.jar"));
+
+        // when - then
+        assertThatThrownBy(() -> mojo.execute())
+                .isExactlyInstanceOf(SignMojoException.class)
+                .hasMessageStartingWith("Signature verification failed for 2 artifact(s): ")
+                .hasMessageContaining("groupId:artifactId:jar:1.0.0 - signature not found")
+                .hasMessageContaining("groupId:artifactId:jar:sources:1.0.0 - signature not found");
+
+        verify(pgpVerifier).verify(any(), any(), eq(publicKeys));
+    }
+
+    private void givenProject(Artifact artifact, Artifact... attachedArtifacts) throws IOException {
+
+        when(project.getGroupId()).thenReturn(artifact.getGroupId());
+        when(project.getArtifactId()).thenReturn(artifact.getArtifactId());
+        when(project.getVersion()).thenReturn(artifact.getVersion());
+        when(project.getArtifact()).thenReturn(artifact);
+        when(project.getFile()).thenReturn(Files.write(tempDir.resolve("pom.xml"), new byte[]{1}).toFile());
+        when(project.getBasedir()).thenReturn(tempDir.toFile());
+        when(project.getAttachedArtifacts()).thenReturn(Arrays.asList(attachedArtifacts));
+
+        when(publicKeyCache.getPublicKeys(new File("public-keys.asc").toPath())).thenReturn(publicKeys);
+    }
+
+    private Artifact artifact(String type, String classifier, String fileName) throws IOException {
+        DefaultArtifact artifact = new DefaultArtifact("groupId", "artifactId", "1.0.0", null, type, classifier,
+                new DefaultArtifactHandler(type));
+        artifact.setFile(Files.write(tempDir.resolve(fileName), new byte[]{1, 2, 3}).toFile());
+        return artifact;
+    }
+}
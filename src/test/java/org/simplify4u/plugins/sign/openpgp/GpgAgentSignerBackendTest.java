@@ -0,0 +1,319 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.bouncycastle.bcpg.PublicKeyAlgorithmTags;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPSecretKey;
+import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.bc.BcPGPSecretKeyRingCollection;
+import org.bouncycastle.openpgp.operator.bc.BcPBESecretKeyDecryptorBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDigestCalculatorProvider;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Tests with simple gpg-agent stub, available by Assuan socket emulation - TCP port and nonce in socket file.
+ */
+class GpgAgentSignerBackendTest {
+
+    private static final byte[] NONCE = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final List<String> commands = Collections.synchronizedList(new ArrayList<>());
+
+    private final PGPVerifier pgpVerifier = new PGPVerifier();
+
+    private PGPPrivateKey agentPrivateKey;
+
+    private volatile boolean agentKeyLocked;
+
+    private PGPPublicKey agentPublicKey;
+
+    private ServerSocket serverSocket;
+
+    @TempDir
+    private Path tempDir;
+
+    private Path socketFile;
+
+    @BeforeEach
+    void setup() throws IOException {
+
+        serverSocket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress());
+        Thread serverThread = new Thread(this::serve);
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        ByteArrayOutputStream socketFileContent = new ByteArrayOutputStream();
+        socketFileContent.write((serverSocket.getLocalPort() + "\n").getBytes(StandardCharsets.US_ASCII));
+        socketFileContent.write(NONCE);
+        socketFile = Files.write(tempDir.resolve("S.gpg-agent"), socketFileContent.toByteArray());
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        serverSocket.close();
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "/priv-key.asc, testPass, AC71B3E31C0C0D38",
+            "/priv-ed25519.asc, test, 2F49C30662665AE7"
+    })
+    void allSignaturesCreatedByOneConnection(String keyFile, String keyPass, String keyId) throws Exception {
+
+        // given
+        loadAgentKey(keyFile, keyPass, Long.parseUnsignedLong(keyId, 16));
+
+        PGPSigner pgpSigner = new PGPSigner();
+        pgpSigner.setBackend(new GpgAgentSignerBackendFactory()
+                .create(URI.create("gpg-agent://" + socketFile.toUri().getRawPath()), agentPublicKey));
+        pgpSigner.setBatchMode(true);
+        pgpSigner.setSelfVerify(true);
+
+        List<Path> signatures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            signatures.add(tempDir.resolve("data" + i + ".asc"));
+        }
+
+        // when
+        for (int i = 0; i < signatures.size(); i++) {
+            pgpSigner.sign(new ByteArrayInputStream(data(i)), signatures.get(i));
+        }
+        pgpSigner.flush();
+
+        // then
+        assertThat(connections).hasValue(1);
+        assertThat(commands).hasSize(7);
+        assertThat(commands.get(0)).isEqualTo("SIGKEY " + Keygrip.calculate(agentPublicKey));
+        assertThat(commands.subList(1, 7)).extracting(command -> command.split(" ")[0])
+                .containsExactly("SETHASH", "PKSIGN", "SETHASH", "PKSIGN", "SETHASH", "PKSIGN");
+
+        for (int i = 0; i < signatures.size(); i++) {
+            try (InputStream signatureStream = Files.newInputStream(signatures.get(i))) {
+                int idx = i;
+                assertThatCode(() -> pgpVerifier.verify(new ByteArrayInputStream(data(idx)), signatureStream,
+                        agentPublicKey))
+                        .doesNotThrowAnyException();
+            }
+        }
+    }
+
+    @Test
+    void agentErrorThrowException() throws Exception {
+
+        // given
+        loadAgentKey("/priv-key.asc", "testPass", 0xAC71B3E31C0C0D38L);
+
+        PGPPublicKey otherPublicKey = new PGPPublicKeyCache().getPublicKey(
+                new File(getClass().getResource(
+                        "/public-keys/EB/8E/EB8E2AFF7C719EDB16EC96318F93A1BD5CC0FBE5.asc").toURI()).toPath(), null);
+
+        PGPSigner pgpSigner = new PGPSigner();
+        pgpSigner.setBackend(new GpgAgentSignerBackend(socketFile, otherPublicKey));
+
+        Path signature = tempDir.resolve("data.asc");
+
+        // when - then
+        assertThatThrownBy(() -> pgpSigner.sign(new ByteArrayInputStream(data(0)), signature))
+                .isExactlyInstanceOf(PGPSignerException.class)
+                .hasMessageContaining("No secret key");
+
+        assertThat(signature).doesNotExist();
+    }
+
+    @Test
+    void agentInquireThrowException() throws Exception {
+
+        // given
+        loadAgentKey("/priv-key.asc", "testPass", 0xAC71B3E31C0C0D38L);
+        agentKeyLocked = true;
+
+        PGPSigner pgpSigner = new PGPSigner();
+        pgpSigner.setBackend(new GpgAgentSignerBackend(socketFile, agentPublicKey));
+
+        Path signature = tempDir.resolve("data.asc");
+
+        // when - then
+        assertThatThrownBy(() -> pgpSigner.sign(new ByteArrayInputStream(data(0)), signature))
+                .isExactlyInstanceOf(PGPSignerException.class)
+                .hasMessageContaining("gpg-agent inquire: PINENTRY_LAUNCHED")
+                .hasMessageContaining("key must be unlocked");
+
+        assertThat(signature).doesNotExist();
+    }
+
+    private void loadAgentKey(String keyFile, String keyPass, long keyId) throws Exception {
+        try (InputStream keyStream = getClass().getResourceAsStream(keyFile)) {
+            PGPSecretKey secretKey = new BcPGPSecretKeyRingCollection(PGPUtil.getDecoderStream(keyStream))
+                    .getSecretKey(keyId);
+            agentPrivateKey = secretKey.extractPrivateKey(
+                    new BcPBESecretKeyDecryptorBuilder(new BcPGPDigestCalculatorProvider())
+                            .build(keyPass.toCharArray()));
+            agentPublicKey = secretKey.getPublicKey();
+        }
+    }
+
+    private static byte[] data(int i) {
+        return ("test data " + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Simple gpg-agent - signs digests by local key.
+     */
+    private void serve() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                connections.incrementAndGet();
+                handle(socket.getInputStream(), socket.getOutputStream());
+            } catch (Exception e) {
+                // server closed
+            }
+        }
+    }
+
+    private void handle(InputStream inputStream, OutputStream outputStream) throws Exception {
+
+        byte[] nonce = new byte[NONCE.length];
+        new DataInputStream(inputStream).readFully(nonce);
+        if (!Arrays.equals(NONCE, nonce)) {
+            return;
+        }
+
+        writeLine(outputStream, "# test agent");
+        writeLine(outputStream, "OK Pleased to meet you");
+
+        int hashAlgorithm = 0;
+        byte[] digest = null;
+        String line;
+        while ((line = readLine(inputStream)) != null) {
+            commands.add(line);
+            String[] command = line.split(" ");
+            switch (command[0]) {
+                case "SIGKEY":
+                    if (command[1].equals(Keygrip.calculate(agentPublicKey))) {
+                        writeLine(outputStream, "OK");
+                    } else {
+                        writeLine(outputStream, "ERR 67108881 No secret key <GPG Agent>");
+                    }
+                    break;
+                case "SETHASH":
+                    hashAlgorithm = Integer.parseInt(command[1]);
+                    digest = Hex.decode(command[2]);
+                    writeLine(outputStream, "OK");
+                    break;
+                case "PKSIGN":
+                    if (agentKeyLocked) {
+                        writeLine(outputStream, "INQUIRE PINENTRY_LAUNCHED 1234 curses 1.2.1 - - -");
+                        commands.add(readLine(inputStream));
+                        writeLine(outputStream, "ERR 83886179 Operation cancelled <GPG Agent>");
+                        break;
+                    }
+                    byte[] signature = DigestSignatures.sign(agentPrivateKey, agentPublicKey.getAlgorithm(),
+                            hashAlgorithm, digest);
+                    outputStream.write("D ".getBytes(StandardCharsets.US_ASCII));
+                    outputStream.write(escape(signatureExpression(signature)));
+                    writeLine(outputStream, "");
+                    writeLine(outputStream, "OK");
+                    break;
+                default:
+                    writeLine(outputStream, "ERR 275 Unknown IPC command <GPG Agent>");
+            }
+        }
+    }
+
+    private byte[] signatureExpression(byte[] signature) throws IOException {
+        ByteArrayOutputStream expression = new ByteArrayOutputStream();
+        if (agentPublicKey.getAlgorithm() == PublicKeyAlgorithmTags.EDDSA_LEGACY) {
+            expression.write("(7:sig-val(5:eddsa".getBytes(StandardCharsets.US_ASCII));
+            writeParam(expression, "r", Arrays.copyOfRange(signature, 0, 32));
+            writeParam(expression, "s", Arrays.copyOfRange(signature, 32, 64));
+        } else {
+            expression.write("(7:sig-val(3:rsa".getBytes(StandardCharsets.US_ASCII));
+            writeParam(expression, "s", signature);
+        }
+        expression.write("))".getBytes(StandardCharsets.US_ASCII));
+        return expression.toByteArray();
+    }
+
+    private static void writeParam(ByteArrayOutputStream expression, String name, byte[] value) throws IOException {
+        expression.write(("(1:" + name + value.length + ":").getBytes(StandardCharsets.US_ASCII));
+        expression.write(value);
+        expression.write(')');
+    }
+
+    private static byte[] escape(byte[] data) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        for (byte b : data) {
+            if (b == '%' || b == '\r' || b == '\n') {
+                byte[] escaped = String.format("%%%02X", b).getBytes(StandardCharsets.US_ASCII);
+                result.write(escaped, 0, escaped.length);
+            } else {
+                result.write(b);
+            }
+        }
+        return result.toByteArray();
+    }
+
+    private static String readLine(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = inputStream.read()) != '\n') {
+            if (b < 0) {
+                return null;
+            }
+            line.write(b);
+        }
+        return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private static void writeLine(OutputStream outputStream, String line) throws IOException {
+        outputStream.write((line + "\n").getBytes(StandardCharsets.US_ASCII));
+        outputStream.flush();
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.openpgp.operator.PGPDigestCalculator;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Test;
+
+class HashAlgorithmSelectorTest {
+
+    @Test
+    void algorithmNotAvailableInJcaShouldBeCalculatedByBouncyCastle() throws Exception {
+
+        // given - RIPEMD160 is not provided by JDK
+        PGPDigestCalculator digestCalculator =
+                HashAlgorithmSelector.DIGEST_CALCULATOR_PROVIDER.get(HashAlgorithmTags.RIPEMD160);
+
+        // when
+        try (OutputStream outputStream = digestCalculator.getOutputStream()) {
+            outputStream.write("abc".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        // then
+        assertThat(Hex.toHexString(digestCalculator.getDigest()))
+                .isEqualTo("8eb208f7e05d987a9b044a8e98c6b087f15a0bfc");
+    }
+}
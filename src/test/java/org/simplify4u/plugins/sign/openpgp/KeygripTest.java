@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vavr.control.Try;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class KeygripTest {
+
+    private final PGPPublicKeyCache publicKeyCache = new PGPPublicKeyCache();
+
+    /**
+     * Expected values as reported by <code>gpg --with-keygrip</code>.
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "BC/06/BC065DCAA903A7785FF79E6EAC71B3E31C0C0D38, 138D8F1B0463948798393E28FE73E12A6045684D",
+            "00/97/00972347FE2609ED6685C9F12F49C30662665AE7, 21E9437C43B54647F37B4AB92CE147E244362232",
+            "EB/8E/EB8E2AFF7C719EDB16EC96318F93A1BD5CC0FBE5, 2D37E0A276B78C25F0C0766DFA6A8D2DE1559A2E"
+    })
+    void keygripForMasterKey(String keyFile, String expectedKeygrip) throws PGPException {
+
+        // given
+        PGPPublicKey publicKey = publicKeyCache.getPublicKey(resourcePath("/public-keys/" + keyFile + ".asc"), null);
+
+        // when
+        String keygrip = Keygrip.calculate(publicKey);
+
+        // then
+        assertThat(keygrip).isEqualTo(expectedKeygrip);
+    }
+
+    private static Path resourcePath(String name) {
+        return Try.of(() -> new File(KeygripTest.class.getResource(name).toURI()).toPath()).get();
+    }
+}
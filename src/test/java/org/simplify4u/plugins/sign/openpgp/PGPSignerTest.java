@@ -15,25 +15,50 @@
  */
 package org.simplify4u.plugins.sign.openpgp;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import io.vavr.control.Try;
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.bcpg.PacketFormat;
+import org.bouncycastle.bcpg.PublicKeyPacket;
+import org.bouncycastle.bcpg.SignaturePacket;
 import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPSignatureList;
+import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.api.OpenPGPKey;
+import org.bouncycastle.openpgp.api.bc.BcOpenPGPApi;
+import org.bouncycastle.openpgp.bc.BcPGPObjectFactory;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 
 class PGPSignerTest {
 
     private PGPSigner pgpSigner = new PGPSigner();
 
+    @TempDir
+    private Path tempDir;
+
     @Test
     void loadKeyWithAllProperties() throws PGPSignerException, IOException {
 
@@ -206,6 +231,149 @@ class PGPSignerTest {
                         + expiredDateTime);
     }
 
+    @ParameterizedTest
+    @CsvSource({
+            "/priv-sub-key-no-pass.asc, , /public-keys/38/AC/38AC1CFFAC0742D839A63F968F56B3C83F55E1A3.asc",
+            "/priv-ed25519.asc, test, /public-keys/00/97/00972347FE2609ED6685C9F12F49C30662665AE7.asc"
+    })
+    void signWithSelfVerification(String privateKey, String pass, String publicKey) throws IOException {
+
+        // given
+        pgpSigner.setKeyInfo(PGPKeyInfo.builder().pass(pass).key(byteFromResource(privateKey)).build());
+        pgpSigner.setSelfVerify(true);
+
+        byte[] data = "test data".getBytes();
+        Path signature = tempDir.resolve("data.asc");
+
+        // when
+        pgpSigner.sign(new ByteArrayInputStream(data), signature);
+
+        // then
+        try (InputStream signatureStream = Files.newInputStream(signature)) {
+            assertThatCode(() -> new PGPVerifier().verify(new ByteArrayInputStream(data), signatureStream,
+                    new PGPPublicKeyCache().getPublicKeys(resourcePath(publicKey))))
+                    .doesNotThrowAnyException();
+        }
+    }
+
+    @Test
+    void signInBothFormatsFromOneSignature() throws IOException {
+
+        // given
+        pgpSigner.setKeyInfo(PGPKeyInfo.builder().key(byteFromResource("/priv-sub-key-no-pass.asc")).build());
+
+        byte[] data = "test data".getBytes();
+        Map<SignatureFormat, Path> outputs = new EnumMap<>(SignatureFormat.class);
+        outputs.put(SignatureFormat.ARMORED, tempDir.resolve("data.asc"));
+        outputs.put(SignatureFormat.BINARY, tempDir.resolve("data.sig"));
+
+        // when
+        pgpSigner.sign(new ByteArrayInputStream(data), outputs);
+
+        // then
+        byte[] armored = Files.readAllBytes(outputs.get(SignatureFormat.ARMORED));
+        byte[] binary = Files.readAllBytes(outputs.get(SignatureFormat.BINARY));
+
+        assertThat(new String(armored, StandardCharsets.US_ASCII)).startsWith("-----BEGIN PGP SIGNATURE-----");
+        assertThat(binary).hasSizeLessThan(armored.length);
+
+        PGPPublicKeyRingCollection publicKeys = new PGPPublicKeyCache().getPublicKeys(
+                resourcePath("/public-keys/38/AC/38AC1CFFAC0742D839A63F968F56B3C83F55E1A3.asc"));
+
+        for (Path signature : outputs.values()) {
+            try (InputStream signatureStream = Files.newInputStream(signature)) {
+                assertThatCode(() -> new PGPVerifier().verify(new ByteArrayInputStream(data), signatureStream,
+                        publicKeys))
+                        .doesNotThrowAnyException();
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "SHA256, 8",
+            "sha-384, 9",
+            "SHA3-256, 12"
+    })
+    void signWithConfiguredHashAlgorithm(String hashAlgorithm, int expectedTag) throws Exception {
+
+        // given
+        pgpSigner.setKeyInfo(PGPKeyInfo.builder().key(byteFromResource("/priv-sub-key-no-pass.asc")).build());
+        pgpSigner.setHashAlgorithm(hashAlgorithm);
+        pgpSigner.setSelfVerify(true);
+
+        Path signature = tempDir.resolve("data.asc");
+
+        // when
+        pgpSigner.sign(new ByteArrayInputStream("test data".getBytes()), signature);
+
+        // then
+        assertThat(readSignature(signature).getHashAlgorithm()).isEqualTo(expectedTag);
+    }
+
+    @Test
+    void signWithAutoHashAlgorithm() throws Exception {
+
+        // given
+        pgpSigner.setKeyInfo(PGPKeyInfo.builder().pass("test").key(byteFromResource("/priv-ed25519.asc")).build());
+        pgpSigner.setHashAlgorithm(HashAlgorithmSelector.AUTO);
+        pgpSigner.setSelfVerify(true);
+
+        Path signature = tempDir.resolve("data.asc");
+
+        // when
+        pgpSigner.sign(new ByteArrayInputStream("test data".getBytes()), signature);
+
+        // then
+        assertThat(readSignature(signature).getHashAlgorithm())
+                .isIn(HashAlgorithmTags.SHA256, HashAlgorithmTags.SHA384, HashAlgorithmTags.SHA512);
+    }
+
+    @Test
+    void unsupportedHashAlgorithmThrowException() {
+
+        assertThatThrownBy(() -> pgpSigner.setHashAlgorithm("MD5"))
+                .isExactlyInstanceOf(PGPSignerException.class)
+                .hasMessageStartingWith("Unsupported hash algorithm: MD5");
+    }
+
+    @Test
+    void signWithVersion6Key() throws Exception {
+
+        // given
+        OpenPGPKey key = new BcOpenPGPApi().generateKey(PublicKeyPacket.VERSION_6).signOnlyKey().build();
+        pgpSigner.setKeyInfo(PGPKeyInfo.builder().key(key.getEncoded(PacketFormat.CURRENT)).build());
+        pgpSigner.setSelfVerify(true);
+
+        byte[] data = "test data".getBytes();
+        Path signature = tempDir.resolve("data.asc");
+
+        // when
+        pgpSigner.sign(new ByteArrayInputStream(data), signature);
+
+        // then
+        assertThat(readSignature(signature).getVersion()).isEqualTo(SignaturePacket.VERSION_6);
+
+        PGPPublicKeyRingCollection publicKeys = new PGPPublicKeyRingCollection(
+                Collections.singletonList(key.getPGPSecretKeyRing().toCertificate()));
+        try (InputStream signatureStream = Files.newInputStream(signature)) {
+            assertThatCode(() -> new PGPVerifier().verify(new ByteArrayInputStream(data), signatureStream,
+                    publicKeys))
+                    .doesNotThrowAnyException();
+        }
+    }
+
+    private PGPSignature readSignature(Path signature) throws IOException {
+        try (InputStream inputStream = PGPUtil.getDecoderStream(Files.newInputStream(signature))) {
+            PGPSignatureList signatures = (PGPSignatureList) new BcPGPObjectFactory(inputStream).nextObject();
+            return signatures.get(0);
+        }
+    }
+
+    private Path resourcePath(String name) {
+        return new File(getClass().getResource(name).getFile()).toPath();
+    }
+
     private byte[] byteFromResource(String name)  {
         return Try.of(() -> Files.readAllBytes(new File(getClass().getResource(name).getFile()).toPath())).get();
     }
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.vavr.control.Try;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PGPVerifierTest {
+
+    private static final byte[] DATA = "test data".getBytes(StandardCharsets.UTF_8);
+
+    private final PGPVerifier pgpVerifier = new PGPVerifier();
+
+    private final PGPPublicKeyCache publicKeyCache = new PGPPublicKeyCache();
+
+    @TempDir
+    private Path tempDir;
+
+    private Path signature;
+
+    @BeforeEach
+    void setup() {
+        PGPSigner pgpSigner = new PGPSigner();
+        pgpSigner.setKeyInfo(PGPKeyInfo.builder()
+                .pass("testPass")
+                .key(Try.of(() -> Files.readAllBytes(resourcePath("/priv-key.asc"))).get())
+                .build());
+
+        signature = tempDir.resolve("data.asc");
+        pgpSigner.sign(new ByteArrayInputStream(DATA), signature);
+    }
+
+    @Test
+    void validSignature() throws IOException {
+
+        // given
+        PGPPublicKeyRingCollection publicKeys = publicKeyCache.getPublicKeys(
+                resourcePath("/public-keys/BC/06/BC065DCAA903A7785FF79E6EAC71B3E31C0C0D38.asc"));
+
+        // when - then
+        try (InputStream signatureStream = Files.newInputStream(signature)) {
+            assertThatCode(() -> pgpVerifier.verify(new ByteArrayInputStream(DATA), signatureStream, publicKeys))
+                    .doesNotThrowAnyException();
+        }
+    }
+
+    @Test
+    void invalidSignatureThrowException() throws IOException {
+
+        // given
+        PGPPublicKeyRingCollection publicKeys = publicKeyCache.getPublicKeys(
+                resourcePath("/public-keys/BC/06/BC065DCAA903A7785FF79E6EAC71B3E31C0C0D38.asc"));
+
+        byte[] otherData = "other data".getBytes(StandardCharsets.UTF_8);
+
+        // when - then
+        try (InputStream signatureStream = Files.newInputStream(signature)) {
+            assertThatThrownBy(() -> pgpVerifier.verify(new ByteArrayInputStream(otherData), signatureStream,
+                    publicKeys))
+                    .isExactlyInstanceOf(PGPSignerException.class)
+                    .hasMessage("Invalid signature by key 0xAC71B3E31C0C0D38");
+        }
+    }
+
+    @Test
+    void notFoundKeyThrowException() throws IOException {
+
+        // given
+        PGPPublicKeyRingCollection publicKeys = publicKeyCache.getPublicKeys(
+                resourcePath("/public-keys/38/AC/38AC1CFFAC0742D839A63F968F56B3C83F55E1A3.asc"));
+
+        // when - then
+        try (InputStream signatureStream = Files.newInputStream(signature)) {
+            assertThatThrownBy(() -> pgpVerifier.verify(new ByteArrayInputStream(DATA), signatureStream, publicKeys))
+                    .isExactlyInstanceOf(PGPSignerException.class)
+                    .hasMessage("Public key 0xAC71B3E31C0C0D38 not found");
+        }
+    }
+
+    @Test
+    void publicKeysAreCachedUntilFileChanged() throws IOException {
+
+        // given
+        Path keyFile = tempDir.resolve("keys.asc");
+        Files.copy(resourcePath("/public-keys/BC/06/BC065DCAA903A7785FF79E6EAC71B3E31C0C0D38.asc"), keyFile);
+
+        // when
+        PGPPublicKeyRingCollection firstKeys = publicKeyCache.getPublicKeys(keyFile);
+        PGPPublicKeyRingCollection secondKeys = publicKeyCache.getPublicKeys(keyFile);
+
+        Files.copy(resourcePath("/public-keys/38/AC/38AC1CFFAC0742D839A63F968F56B3C83F55E1A3.asc"), keyFile,
+                StandardCopyOption.REPLACE_EXISTING);
+        PGPPublicKeyRingCollection changedKeys = publicKeyCache.getPublicKeys(keyFile);
+
+        // then
+        assertThat(secondKeys).isSameAs(firstKeys);
+        assertThat(changedKeys).isNotSameAs(firstKeys);
+        assertThat(changedKeys.getPublicKey(0x8F56B3C83F55E1A3L)).isNotNull();
+    }
+
+    private Path resourcePath(String name) {
+        return new File(getClass().getResource(name).getFile()).toPath();
+    }
+}
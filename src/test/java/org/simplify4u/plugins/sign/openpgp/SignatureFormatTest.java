@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class SignatureFormatTest {
+
+    @ParameterizedTest
+    @NullSource
+    @ValueSource(strings = {"", " ", "armored", " Armored "})
+    void parseArmored(String value) {
+        assertThat(SignatureFormat.parse(value)).isEqualTo(Collections.singletonList(SignatureFormat.ARMORED));
+    }
+
+    @Test
+    void parseBoth() {
+        assertThat(SignatureFormat.parse("both"))
+                .isEqualTo(Arrays.asList(SignatureFormat.ARMORED, SignatureFormat.BINARY));
+    }
+
+    @Test
+    void unknownFormatThrowException() {
+        assertThatThrownBy(() -> SignatureFormat.parse("xml"))
+                .isExactlyInstanceOf(PGPSignerException.class)
+                .hasMessage("Unknown signature format: xml, expected: armored, binary or both");
+    }
+}
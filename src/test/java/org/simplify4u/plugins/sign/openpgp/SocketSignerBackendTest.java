@@ -0,0 +1,209 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.openpgp;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPSecretKey;
+import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.bc.BcPGPSecretKeyRingCollection;
+import org.bouncycastle.openpgp.operator.bc.BcPBESecretKeyDecryptorBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDigestCalculatorProvider;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SocketSignerBackendTest {
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final PGPVerifier pgpVerifier = new PGPVerifier();
+
+    private BcSignerBackend localBackend;
+
+    private ServerSocket serverSocket;
+
+    private volatile boolean serverError;
+
+    @TempDir
+    private Path tempDir;
+
+    @BeforeEach
+    void setup() throws Exception {
+
+        try (InputStream keyStream = getClass().getResourceAsStream("/priv-key.asc")) {
+            PGPSecretKey secretKey = new BcPGPSecretKeyRingCollection(PGPUtil.getDecoderStream(keyStream))
+                    .getSecretKey(0xAC71B3E31C0C0D38L);
+            PGPPrivateKey privateKey = secretKey.extractPrivateKey(
+                    new BcPBESecretKeyDecryptorBuilder(new BcPGPDigestCalculatorProvider())
+                            .build("testPass".toCharArray()));
+            localBackend = new BcSignerBackend(privateKey, secretKey.getPublicKey());
+        }
+
+        serverSocket = new ServerSocket(0);
+        Thread serverThread = new Thread(this::serve);
+        serverThread.setDaemon(true);
+        serverThread.start();
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        serverSocket.close();
+    }
+
+    @Test
+    void allSignaturesCreatedInOneBatch() throws Exception {
+
+        // given
+        SignerBackend backend = new SocketSignerBackendFactory()
+                .create(URI.create("socket://localhost:" + serverSocket.getLocalPort()),
+                        localBackend.getPublicKey());
+
+        PGPSigner pgpSigner = new PGPSigner();
+        pgpSigner.setBackend(backend);
+        pgpSigner.setBatchMode(true);
+        pgpSigner.setSelfVerify(true);
+
+        List<Path> signatures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            signatures.add(tempDir.resolve("data" + i + ".asc"));
+        }
+
+        // when
+        for (int i = 0; i < signatures.size(); i++) {
+            pgpSigner.sign(new ByteArrayInputStream(data(i)), signatures.get(i));
+        }
+
+        // then - nothing is signed before flush
+        assertThat(signatures).allMatch(signature -> !Files.exists(signature));
+        assertThat(connections).hasValue(0);
+
+        // when
+        pgpSigner.flush();
+
+        // then
+        assertThat(connections).hasValue(1);
+        for (int i = 0; i < signatures.size(); i++) {
+            try (InputStream signatureStream = Files.newInputStream(signatures.get(i))) {
+                int idx = i;
+                assertThatCode(() -> pgpVerifier.verify(new ByteArrayInputStream(data(idx)), signatureStream,
+                        localBackend.getPublicKey()))
+                        .doesNotThrowAnyException();
+            }
+        }
+    }
+
+    @Test
+    void backendErrorThrowException() {
+
+        // given
+        serverError = true;
+
+        PGPSigner pgpSigner = new PGPSigner();
+        pgpSigner.setBackend(new SocketSignerBackendFactory()
+                .create(URI.create("socket://localhost:" + serverSocket.getLocalPort()),
+                        localBackend.getPublicKey()));
+
+        Path signature = tempDir.resolve("data.asc");
+
+        // when - then
+        assertThatThrownBy(() -> pgpSigner.sign(new ByteArrayInputStream(data(0)), signature))
+                .isExactlyInstanceOf(PGPSignerException.class)
+                .hasMessageContaining("ERR key not available");
+
+        assertThat(signature).doesNotExist();
+    }
+
+    @Test
+    void invalidLocationThrowException() {
+
+        // given
+        SocketSignerBackendFactory factory = new SocketSignerBackendFactory();
+        URI location = URI.create("socket:/no-host");
+
+        // when - then
+        assertThatThrownBy(() -> factory.create(location, localBackend.getPublicKey()))
+                .isExactlyInstanceOf(PGPSignerException.class)
+                .hasMessage("Signer backend location must be in form: socket://host:port");
+    }
+
+    private static byte[] data(int i) {
+        return ("test data " + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Simple signing service - signs received digests by local backend.
+     */
+    private void serve() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                connections.incrementAndGet();
+                handle(socket.getInputStream(), socket.getOutputStream());
+            } catch (Exception e) {
+                // server closed
+            }
+        }
+    }
+
+    private void handle(InputStream inputStream, OutputStream outputStream) throws Exception {
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.US_ASCII));
+        PrintWriter writer = new PrintWriter(outputStream, true);
+
+        String[] header = reader.readLine().split(" ");
+        assertThat(header[1]).isEqualTo(Hex.toHexString(localBackend.getPublicKey().getFingerprint()));
+
+        List<SignerBackend.SignRequest> requests = new ArrayList<>();
+        for (int i = 0; i < Integer.parseInt(header[2]); i++) {
+            String[] line = reader.readLine().split(" ");
+            requests.add(new SignerBackend.SignRequest(Integer.parseInt(line[0]),
+                    Hex.decode(line[1]), Hex.decode(line[2])));
+        }
+
+        if (serverError) {
+            writer.print("ERR key not available\n");
+            writer.flush();
+            return;
+        }
+
+        List<byte[]> signatures = localBackend.sign(requests);
+        writer.print("OK " + signatures.size() + "\n");
+        signatures.forEach(signature -> writer.print(Hex.toHexString(signature) + "\n"));
+        writer.flush();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AtomicFileWriterTest {
+
+    private final AtomicFileWriter fileWriter = new AtomicFileWriter();
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void writeReplacesExistingFile() throws IOException {
+
+        // given
+        Path target = Files.write(tempDir.resolve("test.asc"), "old content".getBytes(StandardCharsets.UTF_8));
+        fileWriter.setDurability(AtomicFileWriter.Durability.BATCH);
+
+        // when
+        fileWriter.write(target, "new".getBytes(StandardCharsets.UTF_8));
+        fileWriter.sync();
+
+        // then
+        assertThat(target).hasContent("new");
+        assertThat(listFiles()).containsExactly(target);
+    }
+
+    @Test
+    void batchWriteIsInPlaceAfterSync() throws IOException {
+
+        // given
+        Path target = tempDir.resolve("test.asc");
+        Path copy = tempDir.resolve("copy.asc");
+        fileWriter.setDurability(AtomicFileWriter.Durability.BATCH);
+
+        // when
+        fileWriter.write(target, "old".getBytes(StandardCharsets.UTF_8));
+        fileWriter.write(target, "new".getBytes(StandardCharsets.UTF_8));
+        fileWriter.copy(target, copy);
+
+        // then
+        assertThat(target).doesNotExist();
+        assertThat(copy).doesNotExist();
+        assertThat(listFiles()).hasSize(2)
+                .allMatch(path -> AtomicFileWriter.isTemporaryFile(path.getFileName().toString()));
+
+        // when
+        fileWriter.sync();
+
+        // then
+        assertThat(target).hasContent("new");
+        assertThat(copy).hasContent("new");
+        assertThat(listFiles()).containsExactlyInAnyOrder(target, copy);
+    }
+
+    @Test
+    void failedWriteKeepsExistingFile() throws IOException {
+
+        // given
+        Path target = Files.write(tempDir.resolve("test.asc"), "old content".getBytes(StandardCharsets.UTF_8));
+
+        // when
+        assertThatThrownBy(() -> fileWriter.write(target, outputStream -> {
+            outputStream.write("partial".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("test failure");
+        })).isInstanceOf(IOException.class);
+
+        // then
+        assertThat(target).hasContent("old content");
+        assertThat(listFiles()).containsExactly(target);
+    }
+
+    @Test
+    void copyCreatesMissingDirectories() throws IOException {
+
+        // given
+        Path source = Files.write(tempDir.resolve("test.asc"), "content".getBytes(StandardCharsets.UTF_8));
+        Path target = tempDir.resolve("sub/dir/copy.asc");
+
+        // when
+        fileWriter.copy(source, target);
+
+        // then
+        assertThat(target).hasContent("content");
+    }
+
+    @Test
+    void temporaryFileName() {
+        assertThat(AtomicFileWriter.isTemporaryFile(".test.jar.asc.1234abcd.tmp")).isTrue();
+        assertThat(AtomicFileWriter.isTemporaryFile("test.jar.asc")).isFalse();
+    }
+
+    @Test
+    void unknownDurabilityThrowException() {
+
+        assertThat(AtomicFileWriter.Durability.parse("Batch")).isEqualTo(AtomicFileWriter.Durability.BATCH);
+
+        assertThatThrownBy(() -> AtomicFileWriter.Durability.parse("always"))
+                .isExactlyInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown durability: always, expected: none or batch");
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChecksumManifestTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void entriesInOrderOfFiles() throws Exception {
+
+        // given
+        Map<String, Path> files = new LinkedHashMap<>();
+        files.put("b-1.0.jar", Files.write(tempDir.resolve("b.jar"), "12345".getBytes(StandardCharsets.UTF_8)));
+        files.put("a-1.0.pom", Files.write(tempDir.resolve("a.pom"), new byte[0]));
+
+        // when
+        ChecksumManifest manifest = ChecksumManifest.calculate(files, 2);
+
+        // then
+        assertThat(manifest.getEntries()).extracting(ChecksumManifest.Entry::getName)
+                .containsExactly("b-1.0.jar", "a-1.0.pom");
+        assertThat(manifest.getEntries()).extracting(ChecksumManifest.Entry::getSize)
+                .containsExactly(5L, 0L);
+        assertThat(manifest.getEntries()).extracting(ChecksumManifest.Entry::getHash)
+                .containsExactly(sha512("12345"), sha512(""));
+    }
+
+    @Test
+    void writeManifest() throws IOException {
+
+        // given
+        Map<String, Path> files = new LinkedHashMap<>();
+        files.put("test-1.0.jar", Files.write(tempDir.resolve("test.jar"), "12345".getBytes(StandardCharsets.UTF_8)));
+        ChecksumManifest manifest = ChecksumManifest.calculate(files, 1);
+        Path target = tempDir.resolve("out/test-1.0.checksums");
+
+        // when
+        new AtomicFileWriter().write(target, manifest::write);
+
+        // then
+        List<String> lines = Files.readAllLines(target);
+        assertThat(lines).containsExactly(
+                "version: 1",
+                "algorithm: SHA-512",
+                "files: 1",
+                Hex.toHexString(manifest.getEntries().get(0).getHash()) + " 5 test-1.0.jar");
+    }
+
+    private static byte[] sha512(String data) throws Exception {
+        return MessageDigest.getInstance("SHA-512").digest(data.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChunkManifestTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void merkleTreeFromChunks() throws Exception {
+
+        // given
+        Path file = Files.write(tempDir.resolve("test.dat"), "1234567890".getBytes(StandardCharsets.UTF_8));
+
+        // when
+        ChunkManifest manifest = ChunkManifest.calculate(file, 4, 2);
+
+        // then
+        byte[] leaf1 = hash(0, "1234");
+        byte[] leaf2 = hash(0, "5678");
+        byte[] leaf3 = hash(0, "90");
+        byte[] root = hash(1, hash(1, leaf1, leaf2), leaf3);
+
+        assertThat(manifest.getSize()).isEqualTo(10);
+        assertThat(manifest.getChunkSize()).isEqualTo(4);
+        assertThat(manifest.getChunkHashes()).containsExactly(leaf1, leaf2, leaf3);
+        assertThat(manifest.getRoot()).isEqualTo(root);
+    }
+
+    @Test
+    void emptyFileHasOneChunk() throws Exception {
+
+        // given
+        Path file = Files.write(tempDir.resolve("empty.dat"), new byte[0]);
+
+        // when
+        ChunkManifest manifest = ChunkManifest.calculate(file, 4, 2);
+
+        // then
+        assertThat(manifest.getChunkHashes()).hasSize(1);
+        assertThat(manifest.getRoot()).isEqualTo(hash(0, ""));
+    }
+
+    @Test
+    void writeManifest() throws IOException {
+
+        // given
+        Path file = Files.write(tempDir.resolve("test.dat"), "12345".getBytes(StandardCharsets.UTF_8));
+        ChunkManifest manifest = ChunkManifest.calculate(file, 4, 1);
+        Path target = tempDir.resolve("out/test.dat.chunks");
+
+        // when
+        new AtomicFileWriter().write(target, manifest::write);
+
+        // then
+        List<String> lines = Files.readAllLines(target);
+        assertThat(lines).containsExactly(
+                "version: 1",
+                "algorithm: SHA-512",
+                "size: 5",
+                "chunkSize: 4",
+                "chunks: 2",
+                "root: " + Hex.toHexString(manifest.getRoot()),
+                Hex.toHexString(manifest.getChunkHashes().get(0)),
+                Hex.toHexString(manifest.getChunkHashes().get(1)));
+    }
+
+    private static byte[] hash(int prefix, String data) throws Exception {
+        return hash(prefix, data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] hash(int prefix, byte[]... data) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-512");
+        digest.update((byte) prefix);
+        for (byte[] d : data) {
+            digest.update(d);
+        }
+        return digest.digest();
+    }
+}
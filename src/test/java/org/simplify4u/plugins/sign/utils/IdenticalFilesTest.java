@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IdenticalFilesTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void theSameFileShouldBeGrouped() throws IOException {
+
+        // given
+        File file = write("file1.dat", new byte[]{1, 2, 3});
+        File sameFile = new File(tempDir.toFile(), "./file1.dat");
+
+        // when
+        Collection<List<File>> groups = IdenticalFiles.group(Arrays.asList(file, sameFile), Function.identity());
+
+        // then
+        assertThat(groups).containsExactly(Arrays.asList(file, sameFile));
+    }
+
+    @Test
+    void filesWithTheSameContentShouldBeGrouped() throws IOException {
+
+        // given
+        byte[] content = new byte[100 * 1024];
+        Arrays.fill(content, (byte) 7);
+
+        byte[] contentDiffInMiddle = content.clone();
+        contentDiffInMiddle[content.length / 2] = 8;
+
+        File file1 = write("file1.dat", content);
+        File file2 = write("file2.dat", content);
+        File file3 = write("file3.dat", contentDiffInMiddle);
+        File file4 = write("file4.dat", new byte[]{1, 2, 3});
+
+        // when
+        Collection<List<File>> groups = IdenticalFiles.group(Arrays.asList(file1, file2, file3, file4),
+                Function.identity());
+
+        // then
+        assertThat(groups).containsExactly(
+                Arrays.asList(file1, file2),
+                Arrays.asList(file3),
+                Arrays.asList(file4));
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        return Files.write(tempDir.resolve(name), content).toFile();
+    }
+}
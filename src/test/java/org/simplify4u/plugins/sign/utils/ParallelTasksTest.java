@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Slawomir Jaranowski
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.simplify4u.plugins.sign.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class ParallelTasksTest {
+
+    @Test
+    void resultsInOrderOfTasks() {
+
+        // given
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int value = i;
+            tasks.add(() -> {
+                Thread.sleep(10L - value);
+                return value;
+            });
+        }
+
+        // when
+        List<Integer> results = ParallelTasks.run(tasks, 4);
+
+        // then
+        assertThat(results).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    }
+
+    @Test
+    void ioFailureShouldBeUnchecked() {
+
+        // given
+        List<Callable<Integer>> tasks = Arrays.asList(
+                () -> 1,
+                () -> {
+                    throw new IOException("test error");
+                });
+
+        // when - then
+        assertThatThrownBy(() -> ParallelTasks.run(tasks, 2))
+                .isExactlyInstanceOf(UncheckedIOException.class)
+                .hasMessageContaining("test error");
+    }
+
+    @Test
+    void otherFailureShouldBeIllegalState() {
+
+        // given
+        List<Callable<Integer>> tasks = Arrays.asList(
+                () -> 1,
+                () -> {
+                    throw new IllegalArgumentException("test error");
+                });
+
+        // when - then
+        assertThatThrownBy(() -> ParallelTasks.run(tasks, 2))
+                .isExactlyInstanceOf(IllegalStateException.class)
+                .hasRootCauseInstanceOf(IllegalArgumentException.class);
+    }
+}